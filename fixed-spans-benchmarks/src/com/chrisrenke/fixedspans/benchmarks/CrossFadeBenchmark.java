@@ -0,0 +1,54 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans.benchmarks;
+
+import com.chrisrenke.fixedspans.CrossFade;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** {@code ShadowedCrossFadeSpan.setParameter}, stepping through a fade the way an animator does. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CrossFadeBenchmark {
+  private static final int STEPS = 240;
+
+  private CrossFade fade;
+  private int step;
+
+  @Setup public void setUp() {
+    fade = new CrossFade(0xff303030, 0xfff0f0f0, 0xff000000, 0xff3366cc, 0x00, 0xc0);
+  }
+
+  @Benchmark public int setParameter() {
+    step = step == STEPS ? 0 : step + 1;
+    fade.setParameter(step / (float) STEPS);
+    return fade.textColor() ^ fade.shadowColor();
+  }
+}
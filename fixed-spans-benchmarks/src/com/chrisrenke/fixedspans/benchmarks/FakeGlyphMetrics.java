@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans.benchmarks;
+
+import com.chrisrenke.fixedspans.GlyphMetrics;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Deterministic stand-in for a proportional font at a fixed text size. Every ASCII character has
+ * its own advance, so relative cells and width classes behave as they would with a real font.
+ * Reference widths are cached like {@code GlyphMetricsCache} does on device.
+ */
+final class FakeGlyphMetrics implements GlyphMetrics {
+  private static final float TEXT_SIZE = 16f;
+  private static final float[] ASCII_ADVANCES = new float[128];
+
+  static {
+    for (int c = 0; c < ASCII_ADVANCES.length; c++) {
+      float em;
+      if (c == ' ') {
+        em = 0.28f;
+      } else if (c >= '0' && c <= '9') {
+        em = 0.52f + (c - '0') * 0.01f;
+      } else if (c == '.' || c == ',' || c == 'i' || c == 'l') {
+        em = 0.24f;
+      } else if (c == 'M' || c == 'W' || c == 'm' || c == 'w') {
+        em = 0.86f;
+      } else {
+        em = 0.42f + (c % 13) * 0.025f;
+      }
+      ASCII_ADVANCES[c] = em * TEXT_SIZE;
+    }
+  }
+
+  private final Map<String, Float> referenceWidths = new HashMap<String, Float>();
+
+  @Override public float advance(CharSequence text, int index) {
+    return advanceOf(Character.codePointAt(text, index));
+  }
+
+  @Override public float measure(CharSequence text, int start, int end) {
+    float width = 0;
+    for (int i = start; i < end; i = Character.offsetByCodePoints(text, i, 1)) {
+      width += advanceOf(Character.codePointAt(text, i));
+    }
+    return width;
+  }
+
+  @Override public float maxAdvance(String characters) {
+    Float width = referenceWidths.get(characters);
+    if (width == null) {
+      float max = 0;
+      for (int i = 0; i < characters.length(); i = characters.offsetByCodePoints(i, 1)) {
+        max = Math.max(advanceOf(characters.codePointAt(i)), max);
+      }
+      width = max;
+      referenceWidths.put(characters, width);
+    }
+    return width;
+  }
+
+  @Override public void getAdvances(CharSequence text, int start, int end, float[] advances) {
+    for (int i = start; i < end; i++) {
+      advances[i - start] = advanceOf(text.charAt(i));
+    }
+  }
+
+  private static float advanceOf(int codePoint) {
+    return codePoint < ASCII_ADVANCES.length ? ASCII_ADVANCES[codePoint] : 0.6f * TEXT_SIZE;
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans.benchmarks;
+
+import com.chrisrenke.fixedspans.JustifyLayout;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@code JustifySpan.draw} in both spacing modes, once with the plan already in place (every
+ * frame after the first) and once planning from scratch (a new paint or new text).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JustifyBenchmark {
+  /** The free space share whitespace gets in {@code ALL_CHARACTERS} mode. */
+  private static final float WHITESPACE_WEIGHT = 0.5f;
+  /** How much wider than the text the line is. */
+  private static final float SLACK = 1.1f;
+
+  @Param({ "8", "64", "512", "4096" })
+  public int lineLength;
+
+  @Param({ "WHITESPACE_ONLY", "ALL_CHARACTERS" })
+  public String mode;
+
+  private JustifyLayout layout;
+  private FakeGlyphMetrics metrics;
+  private BlackholeGlyphSink sink;
+  private String text;
+  // Alternating keys make the layout treat every call as a paint change and plan again.
+  private final Object keyA = new Object();
+  private final Object keyB = new Object();
+  private boolean flip;
+
+  @Setup public void setUp(Blackhole blackhole) {
+    metrics = new FakeGlyphMetrics();
+    sink = new BlackholeGlyphSink(blackhole);
+    text = SampleText.prose(lineLength);
+
+    float[] advances = new float[lineLength];
+    metrics.getAdvances(text, 0, lineLength, advances);
+    float naturalWidth = 0;
+    for (float advance : advances) {
+      naturalWidth += advance;
+    }
+    float weight = "WHITESPACE_ONLY".equals(mode) ? -1 : WHITESPACE_WEIGHT;
+    layout = new JustifyLayout(naturalWidth * SLACK, weight);
+    layout.prepare(metrics, keyA, text, 0, lineLength);
+  }
+
+  @Benchmark public void draw() {
+    layout.prepare(metrics, keyA, text, 0, lineLength);
+    layout.draw(sink, text, 0, lineLength, 0);
+  }
+
+  @Benchmark public void planAndDraw() {
+    flip = !flip;
+    layout.prepare(metrics, flip ? keyB : keyA, text, 0, lineLength);
+    layout.draw(sink, text, 0, lineLength, 0);
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans.benchmarks;
+
+import com.chrisrenke.fixedspans.MonospaceLayout;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** {@code MonospaceSpan.getSize} and {@code draw}, with cells relative to the run or to "MW". */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MonospaceBenchmark {
+  @Param({ "8", "64", "512", "4096" })
+  public int lineLength;
+
+  @Param({ "relative", "reference" })
+  public String cells;
+
+  private MonospaceLayout layout;
+  private FakeGlyphMetrics metrics;
+  private BlackholeGlyphSink sink;
+  private String text;
+
+  @Setup public void setUp(Blackhole blackhole) {
+    layout = new MonospaceLayout(
+        "reference".equals(cells) ? MonospaceLayout.REFERENCE_CHARACTERS : null);
+    metrics = new FakeGlyphMetrics();
+    sink = new BlackholeGlyphSink(blackhole);
+    text = SampleText.prose(lineLength);
+  }
+
+  @Benchmark public int getSize() {
+    return layout.measure(metrics, text, 0, lineLength);
+  }
+
+  @Benchmark public void draw() {
+    layout.draw(metrics, sink, text, 0, lineLength, 0);
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans.benchmarks;
+
+/** Deterministic sample lines of any length. */
+final class SampleText {
+  private static final String PROSE = "The quick brown fox jumps over the lazy dog while "
+      + "twelve wizards quietly box with jovial kings. ";
+  private static final String FIGURES = "$1,204.56 -87.09 (3,310.00) +42.5 €918.27 ";
+
+  private SampleText() {
+  }
+
+  /** Words separated by single spaces, never ending in whitespace. */
+  static String prose(int length) {
+    char[] line = repeat(PROSE, length);
+    if (line[length - 1] == ' ') line[length - 1] = '.';
+    return new String(line);
+  }
+
+  /** Amounts with currency signs, signs, brackets and delimiters. */
+  static String figures(int length) {
+    return new String(repeat(FIGURES, length));
+  }
+
+  private static char[] repeat(String pattern, int length) {
+    char[] line = new char[length];
+    for (int i = 0; i < length; i++) {
+      line[i] = pattern.charAt(i % pattern.length());
+    }
+    return line;
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans.benchmarks;
+
+import com.chrisrenke.fixedspans.TabularLayout;
+import com.chrisrenke.fixedspans.WidthClassTable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import static com.chrisrenke.fixedspans.WidthClassTable.CURRENCY_SIGNS;
+import static com.chrisrenke.fixedspans.WidthClassTable.DELIMITERS;
+import static com.chrisrenke.fixedspans.WidthClassTable.DIGITS;
+import static com.chrisrenke.fixedspans.WidthClassTable.SIGNS_AND_BRACKETS;
+
+/**
+ * {@code TabularSpan.getSize} and {@code draw} over amounts, with the default delimiter and digit
+ * classes or with currency signs, signs and brackets added.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TabularBenchmark {
+  @Param({ "8", "64", "512", "4096" })
+  public int lineLength;
+
+  @Param({ "default", "custom" })
+  public String widthClasses;
+
+  private TabularLayout layout;
+  private FakeGlyphMetrics metrics;
+  private BlackholeGlyphSink sink;
+  private String text;
+
+  @Setup public void setUp(Blackhole blackhole) {
+    WidthClassTable.Builder table = new WidthClassTable.Builder().addClass(DELIMITERS) //
+        .addClass(DIGITS);
+    if ("custom".equals(widthClasses)) {
+      table.addClass(CURRENCY_SIGNS).addClass(SIGNS_AND_BRACKETS);
+    }
+    layout = new TabularLayout(table.build());
+    metrics = new FakeGlyphMetrics();
+    sink = new BlackholeGlyphSink(blackhole);
+    text = SampleText.figures(lineLength);
+  }
+
+  @Benchmark public int getSize() {
+    return layout.measure(metrics, text, 0, lineLength);
+  }
+
+  @Benchmark public void draw() {
+    layout.draw(metrics, sink, text, 0, lineLength, 0);
+  }
+}
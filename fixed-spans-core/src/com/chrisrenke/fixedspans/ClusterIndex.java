@@ -0,0 +1,126 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import java.text.BreakIterator;
+
+/**
+ * Grapheme cluster boundaries of a range of text: what a reader sees as one character, be it a
+ * single char, a surrogate pair, a base with combining marks or an emoji sequence. Layouts keep
+ * one index and {@link #update} it with every call; the boundaries are only found again when the
+ * chars change. Text made of standalone chars only, the common case, is never handed to a
+ * {@link BreakIterator}.
+ */
+public final class ClusterIndex {
+  private BreakIterator breaker;
+
+  private char[] chars = new char[0];
+  private int length = -1;
+  private int start;
+  private boolean simple;
+  /** Cluster starts relative to {@link #start}, followed by the length; unused when simple. */
+  private int[] boundaries = new int[0];
+  private int count;
+
+  /** Makes this index describe the text between {@code start} and {@code end}. */
+  public ClusterIndex update(CharSequence text, int start, int end) {
+    this.start = start;
+    if (!matches(text, start, end)) index(text, start, end);
+    return this;
+  }
+
+  public int count() {
+    return count;
+  }
+
+  /** True if every cluster is a single char. */
+  public boolean isSimple() {
+    return simple;
+  }
+
+  public int start(int cluster) {
+    return start + (simple ? cluster : boundaries[cluster]);
+  }
+
+  public int end(int cluster) {
+    return start + (simple ? cluster + 1 : boundaries[cluster + 1]);
+  }
+
+  /**
+   * Advance of {@code cluster} of {@code text}, which must be the text last indexed. Single code
+   * points use the cached {@link GlyphMetrics#advance}; longer clusters are measured as a unit.
+   */
+  public float advance(GlyphMetrics metrics, CharSequence text, int cluster) {
+    int clusterStart = start(cluster);
+    int clusterEnd = end(cluster);
+    return clusterEnd - clusterStart == CodePoints.charCount(text, clusterStart)
+        ? metrics.advance(text, clusterStart)
+        : metrics.measure(text, clusterStart, clusterEnd);
+  }
+
+  private boolean matches(CharSequence text, int start, int end) {
+    if (end - start != length) return false;
+    for (int i = start; i < end; i++) {
+      if (chars[i - start] != text.charAt(i)) return false;
+    }
+    return true;
+  }
+
+  private void index(CharSequence text, int start, int end) {
+    length = end - start;
+    if (chars.length < length) chars = new char[length];
+    simple = true;
+    for (int i = start; i < end; i++) {
+      char c = text.charAt(i);
+      chars[i - start] = c;
+      simple &= !mayJoin(c);
+    }
+    if (simple) {
+      count = length;
+      return;
+    }
+
+    if (breaker == null) breaker = BreakIterator.getCharacterInstance();
+    breaker.setText(new String(chars, 0, length));
+    if (boundaries.length < length + 1) boundaries = new int[length + 1];
+    count = 0;
+    for (int boundary = breaker.first(); boundary != BreakIterator.DONE;
+        boundary = breaker.next()) {
+      boundaries[count++] = boundary;
+    }
+    // The last boundary is the end of the text rather than the start of a cluster.
+    count--;
+  }
+
+  /** Whether {@code c} might form a cluster with its neighbours. */
+  private static boolean mayJoin(char c) {
+    if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) return true;
+    // CR joins a following LF, and Hangul jamo combine into syllables.
+    if (c == '\r' || (c >= '\u1100' && c <= '\u11ff') || (c >= '\ua960' && c <= '\ua97f')
+        || (c >= '\ud7b0' && c <= '\ud7ff')) {
+      return true;
+    }
+    switch (Character.getType(c)) {
+      case Character.NON_SPACING_MARK:
+      case Character.ENCLOSING_MARK:
+      case Character.COMBINING_SPACING_MARK:
+      case Character.FORMAT:
+        return true;
+    }
+    return false;
+  }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+/** Code point helpers that work on any {@link CharSequence} without copying it. */
+final class CodePoints {
+  private CodePoints() {
+  }
+
+  /** Returns the number of chars taken by the code point at {@code index} of {@code text}. */
+  static int charCount(CharSequence text, int index) {
+    return Character.isHighSurrogate(text.charAt(index)) && index + 1 < text.length()
+        && Character.isLowSurrogate(text.charAt(index + 1)) ? 2 : 1;
+  }
+}
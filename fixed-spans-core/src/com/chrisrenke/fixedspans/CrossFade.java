@@ -0,0 +1,120 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+/**
+ * Interpolates the text color and shadow color and opacity of {@code ShadowedCrossFadeSpan}.
+ * Colors are packed ARGB ints, as on Android. Every color from 0 to 1 is computed up front in
+ * {@link #STEPS} steps, so moving the fade there is a table lookup. Parameters outside that
+ * range, e.g. from an overshooting interpolator, are extrapolated on every call instead.
+ */
+public final class CrossFade {
+  /** Number of steps between the initial and end colors; finer than 8 bit channels can show. */
+  public static final int STEPS = 256;
+
+  private final int[] textColors = new int[STEPS + 1];
+  private final int[] shadowColors = new int[STEPS + 1];
+  private final int initialTextColor;
+  private final int endTextColor;
+  private final int initialShadowColor;
+  private final int endShadowColor;
+  private final int initialShadowOpacity;
+  private final int endShadowOpacity;
+
+  private int textColor;
+  private int shadowColor;
+
+  public CrossFade(int initialTextColor, int endTextColor, int initialShadowColor,
+      int endShadowColor, int initialShadowOpacity, int endShadowOpacity) {
+    this.initialTextColor = initialTextColor;
+    this.endTextColor = endTextColor;
+    this.initialShadowColor = initialShadowColor;
+    this.endShadowColor = endShadowColor;
+    this.initialShadowOpacity = initialShadowOpacity;
+    this.endShadowOpacity = endShadowOpacity;
+    for (int step = 0; step <= STEPS; step++) {
+      float t = step / (float) STEPS;
+      textColors[step] = textColorAt(t);
+      shadowColors[step] = shadowColorAt(t);
+    }
+
+    // Set the fade to the initial state.
+    setParameter(0);
+  }
+
+  /** Fully opaque text color for the current parameter. */
+  public int textColor() {
+    return textColor;
+  }
+
+  /** Shadow color for the current parameter, with the shadow opacity as its alpha. */
+  public int shadowColor() {
+    return shadowColor;
+  }
+
+  /**
+   * Moves the fade to {@code t}, rounded to the nearest step within [0, 1]. Beyond either end the
+   * colors are extrapolated, with channels that leave [0, 255] spilling into their neighbors.
+   */
+  public void setParameter(float t) {
+    if (t >= 0 && t <= 1) {
+      int step = (int) (t * STEPS + 0.5f);
+      textColor = textColors[step];
+      shadowColor = shadowColors[step];
+    } else {
+      textColor = textColorAt(t);
+      shadowColor = shadowColorAt(t);
+    }
+  }
+
+  private int textColorAt(float t) {
+    return argb(0xff, //
+        param(red(initialTextColor), red(endTextColor), t), //
+        param(green(initialTextColor), green(endTextColor), t), //
+        param(blue(initialTextColor), blue(endTextColor), t));
+  }
+
+  private int shadowColorAt(float t) {
+    // Packed without the opacity first, so that an extrapolated channel spills into the others
+    // but not into the alpha.
+    int rgb = argb(0xff, //
+        param(red(initialShadowColor), red(endShadowColor), t), //
+        param(green(initialShadowColor), green(endShadowColor), t), //
+        param(blue(initialShadowColor), blue(endShadowColor), t));
+    return argb(param(initialShadowOpacity, endShadowOpacity, t), red(rgb), green(rgb), blue(rgb));
+  }
+
+  private static int param(int min, int max, float t) {
+    return (int) ((max - min) * t) + min;
+  }
+
+  private static int argb(int alpha, int red, int green, int blue) {
+    return (alpha << 24) | (red << 16) | (green << 8) | blue;
+  }
+
+  private static int red(int color) {
+    return (color >> 16) & 0xff;
+  }
+
+  private static int green(int color) {
+    return (color >> 8) & 0xff;
+  }
+
+  private static int blue(int color) {
+    return color & 0xff;
+  }
+}
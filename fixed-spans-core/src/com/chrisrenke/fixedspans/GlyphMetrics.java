@@ -0,0 +1,42 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+/** Source of character advances for the layout math, e.g. a paint or a fixed table of widths. */
+public interface GlyphMetrics {
+  /**
+   * Returns the advance of the code point at {@code index} of {@code text}, which takes two chars
+   * if it is a surrogate pair.
+   */
+  float advance(CharSequence text, int index);
+
+  /**
+   * Returns the advance of the chars between {@code start} and {@code end} of {@code text} shaped
+   * as a unit, such as a grapheme cluster of several code points.
+   */
+  float measure(CharSequence text, int start, int end);
+
+  /** Returns the widest advance of any character in {@code characters}. May be cached. */
+  float maxAdvance(String characters);
+
+  /**
+   * Measures every char between {@code start} and {@code end} of {@code text} into
+   * {@code advances}, in one go where the platform allows. The second char of a surrogate pair
+   * gets an advance of zero.
+   */
+  void getAdvances(CharSequence text, int start, int end, float[] advances);
+}
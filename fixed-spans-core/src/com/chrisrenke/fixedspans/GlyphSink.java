@@ -0,0 +1,29 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+/** Receives the text runs the layout math places, e.g. a canvas at a fixed baseline. */
+public interface GlyphSink {
+  /** Draws the chars between {@code start} and {@code end} of {@code text} as one run at x. */
+  void drawText(CharSequence text, int start, int end, float x);
+
+  /**
+   * Draws every char between {@code start} and {@code end} of {@code text} on its own, the char
+   * at {@code start + i} at {@code xPositions[i]}.
+   */
+  void drawPositioned(CharSequence text, int start, int end, float[] xPositions);
+}
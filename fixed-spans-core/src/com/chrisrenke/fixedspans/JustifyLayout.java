@@ -0,0 +1,273 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+/**
+ * Spacing plan for one justified line. The plan is kept until the line's characters or the
+ * metrics it was measured with change, so redrawing an unchanged line measures nothing, even
+ * once the line has moved within its text.
+ *
+ * <p>Where only the gaps between words grow, each word is drawn as one run, which keeps its
+ * kerning, ligatures and shaping. Clusters are only drawn one by one when spacing them out would
+ * visibly move their glyphs.
+ */
+public final class JustifyLayout {
+  /** Furthest a glyph may be drawn from its planned position when its word is drawn as a run. */
+  static final float MAX_RUN_DRIFT = 0.5f;
+
+  private static final char[] NO_CHARS = new char[0];
+  private static final float[] NO_FLOATS = new float[0];
+
+  private final float lineWidth;
+  private final float whitespaceWeight;
+
+  private int planStart;
+  private int planEnd;
+  private Object planMetricsKey;
+  private int planLength;
+  private boolean planJustified;
+  private boolean planRuns;
+  // Sized by the first plan; a span that is never drawn allocates nothing more.
+  private char[] planChars = NO_CHARS;
+  private float[] advances = NO_FLOATS;
+  private final ClusterIndex clusters = new ClusterIndex();
+  /** Advance of every cluster of the plan. */
+  private float[] clusterAdvances = NO_FLOATS;
+  private float[] offsets = NO_FLOATS;
+
+  /**
+   * A {@code whitespaceWeight} above zero spreads the free space over every character, giving
+   * whitespace that many times the share of other characters; otherwise only whitespace grows.
+   */
+  public JustifyLayout(float lineWidth, float whitespaceWeight) {
+    this.lineWidth = lineWidth;
+    this.whitespaceWeight = whitespaceWeight;
+  }
+
+  public float lineWidth() {
+    return lineWidth;
+  }
+
+  public float whitespaceWeight() {
+    return whitespaceWeight;
+  }
+
+  /**
+   * Plans the line between {@code start} and {@code end} of {@code text} unless the current plan
+   * already covers it. {@code metricsKey} identifies the metrics; equal keys must mean equal
+   * advances.
+   */
+  public void prepare(GlyphMetrics metrics, Object metricsKey, CharSequence text, int start,
+      int end) {
+    if (!isPlanValid(metricsKey, text, start, end)) plan(metrics, metricsKey, text, start, end);
+  }
+
+  /** False if the line is already too wide to be justified and is drawn as it is. */
+  public boolean isJustified() {
+    return planJustified;
+  }
+
+  /** True if the words of the justified line are drawn as whole runs rather than by cluster. */
+  public boolean drawsRuns() {
+    return planRuns;
+  }
+
+  /** Number of clusters drawn by the current plan, trailing whitespace excluded. */
+  public int clusterCount() {
+    return planLength;
+  }
+
+  /** Offset of {@code cluster} from the start of the line; only valid for a justified plan. */
+  public float offset(int cluster) {
+    return offsets[cluster];
+  }
+
+  /**
+   * Adopts a plan made earlier for the same line, e.g. read back from a {@link JustifyPlanStore},
+   * without measuring anything. Returns false if the {@code offsets} do not fit the line's
+   * clusters, in which case the next {@link #prepare} measures the line.
+   */
+  public boolean restore(Object metricsKey, CharSequence text, int start, int end,
+      boolean justified, boolean runs, float[] offsets) {
+    ensureCapacity(end - start);
+    for (int i = start; i < end; i++) {
+      planChars[i - start] = text.charAt(i);
+    }
+    planStart = start;
+    planEnd = end;
+    int count = clusters.update(text, start, end).count();
+    if (count > 0 && isWhitespace(count - 1)) count--;
+    if (justified && offsets.length != count) {
+      planMetricsKey = null;
+      return false;
+    }
+    System.arraycopy(offsets, 0, this.offsets, 0, offsets.length);
+    planMetricsKey = metricsKey;
+    planLength = count;
+    planJustified = justified;
+    planRuns = runs;
+    return true;
+  }
+
+  /** Draws the line planned by the last call to {@link #prepare}. */
+  public void draw(GlyphSink sink, CharSequence text, int start, int end, float x) {
+    // If there's no available space, draw the text as usual.
+    if (!planJustified) {
+      sink.drawText(text, start, end, x);
+      return;
+    }
+    // The plan may have been made at another position of the text.
+    int shift = start - planStart;
+    if (!planRuns) {
+      for (int cluster = 0; cluster < planLength; cluster++) {
+        sink.drawText(text, clusters.start(cluster) + shift, clusters.end(cluster) + shift,
+            x + offsets[cluster]);
+      }
+      return;
+    }
+    // Whitespace draws nothing, so only the words between it are drawn.
+    for (int cluster = 0; cluster < planLength; ) {
+      if (isWhitespace(cluster)) {
+        cluster++;
+        continue;
+      }
+      int wordStart = cluster;
+      while (cluster < planLength && !isWhitespace(cluster)) cluster++;
+      sink.drawText(text, clusters.start(wordStart) + shift, clusters.end(cluster - 1) + shift,
+          x + offsets[wordStart]);
+    }
+  }
+
+  private boolean isPlanValid(Object metricsKey, CharSequence text, int start, int end) {
+    if (planEnd - planStart != end - start || planMetricsKey != metricsKey) return false;
+    for (int i = start; i < end; i++) {
+      if (planChars[i - start] != text.charAt(i)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Measures every advance of the line with a single call and lays out the offsets of its
+   * grapheme clusters.
+   */
+  private void plan(GlyphMetrics metrics, Object metricsKey, CharSequence text, int start,
+      int end) {
+    ensureCapacity(end - start);
+    for (int i = start; i < end; i++) {
+      planChars[i - start] = text.charAt(i);
+    }
+    metrics.getAdvances(text, start, end, advances);
+
+    planStart = start;
+    planEnd = end;
+    planMetricsKey = metricsKey;
+
+    // A cluster advances by the sum of its chars' advances.
+    int count = clusters.update(text, start, end).count();
+    for (int cluster = 0; cluster < count; cluster++) {
+      float advance = 0;
+      for (int i = clusters.start(cluster); i < clusters.end(cluster); i++) {
+        advance += advances[i - start];
+      }
+      clusterAdvances[cluster] = advance;
+    }
+
+    // Prune trailing whitespace characters from line
+    if (count > 0 && isWhitespace(count - 1)) count--;
+    planLength = count;
+
+    float textWidth = 0;
+    int whitespaceCharacters = 0;
+    for (int cluster = 0; cluster < count; cluster++) {
+      textWidth += clusterAdvances[cluster];
+      if (isWhitespace(cluster)) whitespaceCharacters++;
+    }
+    float differenceWidth = lineWidth - textWidth;
+    planJustified = differenceWidth > 0;
+    planRuns = false;
+    if (!planJustified) return;
+
+    if (whitespaceWeight > 0) {
+      planOmniSpacing(differenceWidth, whitespaceCharacters);
+    } else {
+      planWhitespace(differenceWidth, whitespaceCharacters);
+      planRuns = true;
+    }
+  }
+
+  /**
+   * Lays out the line with additional width given to whitespace characters; non-whitespace
+   * characters keep their normal advance.
+   */
+  private void planWhitespace(float differenceWidth, int whitespaceCharacters) {
+    float addPerWhitespace = differenceWidth / (float) whitespaceCharacters;
+
+    float x = 0;
+    for (int cluster = 0; cluster < planLength; cluster++) {
+      offsets[cluster] = x;
+      x += clusterAdvances[cluster];
+      if (isWhitespace(cluster)) x += addPerWhitespace;
+    }
+  }
+
+  /**
+   * Lays out the line with additional spacing placed around every character, with more or less
+   * space given to whitespace characters based on the strength of the {@code whitespaceWeight}.
+   */
+  private void planOmniSpacing(float differenceWidth, int whitespaceCharacters) {
+    int nonWhitespaceCharacters = planLength - whitespaceCharacters;
+
+    float addPerCharacter =
+        differenceWidth / ((whitespaceCharacters * whitespaceWeight) + nonWhitespaceCharacters);
+    float halfAddPerCharacter = addPerCharacter / 2f;
+
+    float x = 0;
+    int longestWord = 0;
+    for (int cluster = 0, word = 0; cluster < planLength; cluster++) {
+      boolean whitespace = isWhitespace(cluster);
+      float characterPadding = whitespace //
+          ? halfAddPerCharacter * whitespaceWeight //
+          : halfAddPerCharacter;
+
+      x += characterPadding;
+      offsets[cluster] = x;
+      x += characterPadding + clusterAdvances[cluster];
+
+      word = whitespace ? 0 : word + 1;
+      longestWord = Math.max(longestWord, word);
+    }
+
+    // Drawn as a run, the last glyph of a word ends up short of its place by all the spacing
+    // added within the word.
+    planRuns = (longestWord - 1) * addPerCharacter <= MAX_RUN_DRIFT;
+  }
+
+  private void ensureCapacity(int length) {
+    if (planChars.length >= length) return;
+    planChars = new char[length];
+    advances = new float[length];
+    clusterAdvances = new float[length];
+    offsets = new float[length];
+  }
+
+  /** Whether {@code cluster} of the plan is a single whitespace char. */
+  private boolean isWhitespace(int cluster) {
+    int clusterStart = clusters.start(cluster);
+    return clusters.end(cluster) - clusterStart == 1
+        && Character.isWhitespace(planChars[clusterStart - planStart]);
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+/**
+ * Line breaks and spacing of a whole justified text, in a form that can be stored and applied
+ * again later without measuring. Line ends are offsets into the source text, before any breaks
+ * were inserted.
+ */
+public final class JustifyPlan {
+  static final int SPANNED = 1;
+  static final int JUSTIFIED = 2;
+  static final int RUNS = 4;
+
+  private static final float[] NO_OFFSETS = new float[0];
+
+  private int lineCount;
+  private int[] lineEnds = new int[16];
+  private byte[] flags = new byte[16];
+  private float[][] offsets = new float[16][];
+
+  /**
+   * Adds the next line, ending at {@code end} of the source. A spanned line is drawn by a justify
+   * span; if it is also justified its clusters are drawn at the first {@code count}
+   * {@code offsets}, by word if {@code runs}.
+   */
+  public void addLine(int end, boolean spanned, boolean justified, boolean runs, float[] offsets,
+      int count) {
+    float[] lineOffsets = NO_OFFSETS;
+    int lineFlags = spanned ? SPANNED : 0;
+    if (spanned && justified) {
+      lineOffsets = new float[count];
+      System.arraycopy(offsets, 0, lineOffsets, 0, count);
+      lineFlags |= JUSTIFIED | (runs ? RUNS : 0);
+    }
+    addLine(end, lineFlags, lineOffsets);
+  }
+
+  void addLine(int end, int lineFlags, float[] lineOffsets) {
+    if (lineCount == lineEnds.length) {
+      int capacity = lineCount * 2;
+      int[] grownEnds = new int[capacity];
+      byte[] grownFlags = new byte[capacity];
+      float[][] grownOffsets = new float[capacity][];
+      System.arraycopy(lineEnds, 0, grownEnds, 0, lineCount);
+      System.arraycopy(flags, 0, grownFlags, 0, lineCount);
+      System.arraycopy(offsets, 0, grownOffsets, 0, lineCount);
+      lineEnds = grownEnds;
+      flags = grownFlags;
+      offsets = grownOffsets;
+    }
+    lineEnds[lineCount] = end;
+    flags[lineCount] = (byte) lineFlags;
+    offsets[lineCount++] = lineOffsets;
+  }
+
+  public int lineCount() {
+    return lineCount;
+  }
+
+  public int lineEnd(int line) {
+    return lineEnds[line];
+  }
+
+  public boolean isSpanned(int line) {
+    return (flags[line] & SPANNED) != 0;
+  }
+
+  public boolean isJustified(int line) {
+    return (flags[line] & JUSTIFIED) != 0;
+  }
+
+  public boolean drawsRuns(int line) {
+    return (flags[line] & RUNS) != 0;
+  }
+
+  /** Cluster offsets of {@code line}; empty unless it is justified. Must not be modified. */
+  public float[] offsets(int line) {
+    return offsets[line];
+  }
+
+  int flags(int line) {
+    return flags[line];
+  }
+}
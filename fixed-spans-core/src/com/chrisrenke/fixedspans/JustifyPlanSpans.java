@@ -0,0 +1,43 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+/**
+ * Describes the spans that change how a text breaks into lines, for the parameters a
+ * {@link JustifyPlanStore} keys plans by. The same chars with other such spans, or with the same
+ * spans over other ranges, are described differently.
+ */
+public final class JustifyPlanSpans {
+  private final StringBuilder description = new StringBuilder();
+
+  /**
+   * Adds a span of {@code type} from {@code start} to {@code end}, measuring with
+   * {@code parameters}.
+   */
+  public JustifyPlanSpans add(String type, int start, int end, String parameters) {
+    // Lengths up front, so that no two lists of spans read the same.
+    description.append(type.length()).append(':').append(type)
+        .append('@').append(start).append('-').append(end)
+        .append('=').append(parameters.length()).append(':').append(parameters)
+        .append(';');
+    return this;
+  }
+
+  @Override public String toString() {
+    return description.toString();
+  }
+}
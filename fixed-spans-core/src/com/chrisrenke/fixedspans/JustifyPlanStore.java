@@ -0,0 +1,381 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded directory of {@link JustifyPlan}s, one memory-mapped file per text. Plans are
+ * found by a 64-bit hash of the text and of the parameters, a description of everything else that
+ * affects its layout. Before a plan is used, a second, independent hash of both, the text's
+ * length and the parameters themselves must match too. Once the directory grows past its budget
+ * the least recently read plans are deleted. Reads and writes are appended to a journal, as file
+ * modification times cannot be set on many Android file systems, and the order of use is
+ * replayed from it when the store is opened.
+ *
+ * <p>Files start with a magic number and {@link #VERSION}. Plans of other versions live in other
+ * subdirectories, which are deleted when the store is {@link #open opened}. All methods do file
+ * IO, so none should be called on the main thread.
+ */
+public final class JustifyPlanStore {
+  /** Bump whenever the file format or the meaning of a plan changes. */
+  static final int VERSION = 3;
+
+  private static final int MAGIC = 0x464a5350; // "FJSP"
+  /** Header bytes besides the parameters. */
+  private static final int HEADER_BYTES = 36;
+  private static final String SUFFIX = ".plan";
+  private static final String JOURNAL = "journal";
+  /** Stale journal lines allowed beyond one per plan before it is rewritten. */
+  private static final int JOURNAL_SLACK = 64;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+  private static final long CHECK_MULTIPLIER = 0xc6a4a7935bd1e995L;
+
+  private static final Comparator<File> OLDEST_FIRST = new Comparator<File>() {
+    @Override public int compare(File a, File b) {
+      long difference = a.lastModified() - b.lastModified();
+      return difference < 0 ? -1 : difference > 0 ? 1 : 0;
+    }
+  };
+
+  private final File root;
+  private final File directory;
+  private final File journal;
+  private final long maxBytes;
+  /** Plan file names to their sizes, least recently used first; null until opened. */
+  private LinkedHashMap<String, Long> plans;
+  private long totalBytes;
+  private int journalLines;
+
+  /** Keeps at most {@code maxBytes} of plans in {@code root}, which is owned by the store. */
+  public JustifyPlanStore(File root, long maxBytes) {
+    this.root = root;
+    this.directory = new File(root, "v" + VERSION);
+    this.journal = new File(directory, JOURNAL);
+    this.maxBytes = maxBytes;
+  }
+
+  /** FNV-1a hash of {@code text} and {@code parameters}, which names the plan's file. */
+  static long key(CharSequence text, String parameters) {
+    long hash = FNV_OFFSET;
+    for (int i = 0, length = text.length(); i < length; i++) {
+      hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+    }
+    hash = (hash ^ 0xffff) * FNV_PRIME;
+    for (int i = 0, length = parameters.length(); i < length; i++) {
+      hash = (hash ^ parameters.charAt(i)) * FNV_PRIME;
+    }
+    return hash;
+  }
+
+  /** Polynomial hash of the same input, unrelated to {@link #key}, stored to confirm a match. */
+  static long check(CharSequence text, String parameters) {
+    long hash = text.length();
+    for (int i = 0, length = text.length(); i < length; i++) {
+      hash = hash * CHECK_MULTIPLIER + text.charAt(i);
+    }
+    for (int i = 0, length = parameters.length(); i < length; i++) {
+      hash = hash * CHECK_MULTIPLIER + parameters.charAt(i);
+    }
+    return hash ^ (hash >>> 29);
+  }
+
+  /**
+   * Returns the plan stored for {@code text} justified as described by {@code parameters}, or
+   * null if there is none. Files that are unreadable or stored for another text are deleted.
+   */
+  public synchronized JustifyPlan get(CharSequence text, String parameters) {
+    long key = key(text, parameters);
+    File file = fileFor(key);
+    if (!open() || !file.exists()) return null;
+    JustifyPlan plan = null;
+    try {
+      RandomAccessFile input = new RandomAccessFile(file, "r");
+      try {
+        MappedByteBuffer buffer =
+            input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, input.length());
+        plan = read(buffer, key, check(text, parameters), parameters, text.length());
+      } finally {
+        input.close();
+      }
+    } catch (IOException ignored) {
+    } catch (BufferUnderflowException ignored) {
+    }
+    if (plan == null) {
+      delete(file);
+    } else {
+      recordUse(file.getName());
+    }
+    return plan;
+  }
+
+  /**
+   * Stores {@code plan} for {@code text} justified as described by {@code parameters}, replacing
+   * any earlier plan, and evicts if needed.
+   */
+  public synchronized void put(CharSequence text, String parameters, JustifyPlan plan) {
+    if (!open()) return;
+    long key = key(text, parameters);
+    ByteBuffer buffer = write(plan, key, check(text, parameters), parameters, text.length());
+    if (buffer.capacity() > maxBytes) return;
+
+    File file = fileFor(key);
+    File temp = new File(directory, Long.toHexString(key) + ".tmp");
+    try {
+      FileOutputStream output = new FileOutputStream(temp);
+      try {
+        output.getChannel().write(buffer);
+      } finally {
+        output.close();
+      }
+    } catch (IOException e) {
+      temp.delete();
+      return;
+    }
+    delete(file);
+    if (!temp.renameTo(file)) {
+      temp.delete();
+      return;
+    }
+    long length = file.length();
+    plans.put(file.getName(), length);
+    totalBytes += length;
+    recordUse(file.getName());
+    trim();
+  }
+
+  /** Deletes every stored plan. */
+  public synchronized void clear() {
+    deleteContents(root);
+    plans = null;
+  }
+
+  /**
+   * Creates the directory, deletes plans of other versions and replays the journal, unless done
+   * before. Every other method opens the store first; calling this early keeps that work out of
+   * the first lookup. Returns false if the directory cannot be created.
+   */
+  public synchronized boolean open() {
+    if (plans != null) return true;
+    File[] others = root.listFiles();
+    if (others != null) {
+      for (File other : others) {
+        if (!other.equals(directory)) {
+          deleteContents(other);
+          other.delete();
+        }
+      }
+    }
+    if (!directory.isDirectory() && !directory.mkdirs()) return false;
+
+    // Plans the journal does not mention, e.g. after it was lost, count as least recently used.
+    File[] files = listPlans();
+    Arrays.sort(files, OLDEST_FIRST);
+    plans = new LinkedHashMap<String, Long>(16, 0.75f, true);
+    totalBytes = 0;
+    for (File file : files) {
+      long length = file.length();
+      plans.put(file.getName(), length);
+      totalBytes += length;
+    }
+    replayJournal();
+    rewriteJournal();
+    return true;
+  }
+
+  /** Deletes the least recently used plans until the directory fits its budget. */
+  private void trim() {
+    for (Iterator<Map.Entry<String, Long>> entries = plans.entrySet().iterator();
+        totalBytes > maxBytes && entries.hasNext(); ) {
+      Map.Entry<String, Long> entry = entries.next();
+      if (new File(directory, entry.getKey()).delete()) {
+        totalBytes -= entry.getValue();
+        entries.remove();
+      }
+    }
+  }
+
+  private void delete(File file) {
+    if (!file.delete()) return;
+    Long length = plans.remove(file.getName());
+    if (length != null) totalBytes -= length;
+  }
+
+  /** Makes the plan in {@code name} the most recently used, in memory and in the journal. */
+  private void recordUse(String name) {
+    plans.get(name);
+    if (journalLines > plans.size() + JOURNAL_SLACK) {
+      rewriteJournal();
+      return;
+    }
+    try {
+      OutputStream output = new FileOutputStream(journal, true);
+      try {
+        output.write((name + '\n').getBytes(UTF_8));
+      } finally {
+        output.close();
+      }
+      journalLines++;
+    } catch (IOException ignored) {
+      // The order of use is then only kept until the store is closed.
+    }
+  }
+
+  /** Moves every plan named in the journal to the end, in the order they were used. */
+  private void replayJournal() {
+    try {
+      BufferedReader input =
+          new BufferedReader(new InputStreamReader(new FileInputStream(journal), UTF_8));
+      try {
+        for (String name; (name = input.readLine()) != null; ) {
+          Long length = plans.remove(name);
+          if (length != null) plans.put(name, length);
+        }
+      } finally {
+        input.close();
+      }
+    } catch (IOException ignored) {
+      // No journal yet, or an unreadable one: the plans stay in modification order.
+    }
+  }
+
+  /** Replaces the journal with one line per plan, least recently used first. */
+  private void rewriteJournal() {
+    StringBuilder lines = new StringBuilder();
+    for (String name : plans.keySet()) {
+      lines.append(name).append('\n');
+    }
+    File temp = new File(directory, JOURNAL + ".tmp");
+    try {
+      OutputStream output = new FileOutputStream(temp);
+      try {
+        output.write(lines.toString().getBytes(UTF_8));
+      } finally {
+        output.close();
+      }
+    } catch (IOException e) {
+      temp.delete();
+      return;
+    }
+    journal.delete();
+    if (temp.renameTo(journal)) {
+      journalLines = plans.size();
+    } else {
+      temp.delete();
+    }
+  }
+
+  private File[] listPlans() {
+    File[] files = directory.listFiles();
+    if (files == null) return new File[0];
+    int count = 0;
+    for (File file : files) {
+      if (file.getName().endsWith(SUFFIX)) files[count++] = file;
+    }
+    return Arrays.copyOf(files, count);
+  }
+
+  private File fileFor(long key) {
+    return new File(directory, Long.toHexString(key) + SUFFIX);
+  }
+
+  private static void deleteContents(File directory) {
+    File[] files = directory.listFiles();
+    if (files == null) return;
+    for (File file : files) {
+      if (file.isDirectory()) deleteContents(file);
+      file.delete();
+    }
+  }
+
+  /**
+   * Layout: magic, version, key, check, text length, the parameters' UTF-8 byte count followed by
+   * the bytes, and the line count, then per line its end, flags and offset count followed by the
+   * offsets. All values are big endian.
+   */
+  private static ByteBuffer write(JustifyPlan plan, long key, long check, String parameters,
+      int textLength) {
+    byte[] parameterBytes = parameters.getBytes(UTF_8);
+    int lineCount = plan.lineCount();
+    int size = HEADER_BYTES + parameterBytes.length;
+    for (int line = 0; line < lineCount; line++) {
+      size += 9 + 4 * plan.offsets(line).length;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer.putInt(MAGIC).putInt(VERSION).putLong(key).putLong(check).putInt(textLength)
+        .putInt(parameterBytes.length).put(parameterBytes).putInt(lineCount);
+    for (int line = 0; line < lineCount; line++) {
+      float[] offsets = plan.offsets(line);
+      buffer.putInt(plan.lineEnd(line)).put((byte) plan.flags(line)).putInt(offsets.length);
+      for (float offset : offsets) {
+        buffer.putFloat(offset);
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private static JustifyPlan read(ByteBuffer buffer, long key, long check, String parameters,
+      int textLength) {
+    if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != key
+        || buffer.getLong() != check || buffer.getInt() != textLength) {
+      return null;
+    }
+    byte[] parameterBytes = parameters.getBytes(UTF_8);
+    if (buffer.getInt() != parameterBytes.length) return null;
+    for (byte expected : parameterBytes) {
+      if (buffer.get() != expected) return null;
+    }
+    int lineCount = buffer.getInt();
+    if (lineCount <= 0 || lineCount > textLength + 1) return null;
+    JustifyPlan plan = new JustifyPlan();
+    int previousEnd = 0;
+    for (int line = 0; line < lineCount; line++) {
+      int end = buffer.getInt();
+      int flags = buffer.get();
+      int count = buffer.getInt();
+      if (end < previousEnd || end > textLength || count < 0 || count > end - previousEnd) {
+        return null;
+      }
+      float[] offsets = new float[count];
+      buffer.asFloatBuffer().get(offsets);
+      buffer.position(buffer.position() + 4 * count);
+      plan.addLine(end, flags, offsets);
+      previousEnd = end;
+    }
+    return previousEnd == textLength && !buffer.hasRemaining() ? plan : null;
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import java.util.Arrays;
+
+/**
+ * Text kept as a list of lines in one growing buffer, without the separators. Lines are only ever
+ * added at the end, in amortized constant time, and any line is found with one array read. A
+ * {@code '\n'} ends a line; text after the last one is an open line that the next append
+ * continues.
+ */
+public final class LineIndex {
+  private final StringBuilder chars = new StringBuilder();
+  private int[] lineStarts = new int[16];
+  private int lineCount;
+  private boolean lastLineOpen;
+
+  /**
+   * Appends {@code text}, ending a line at every {@code '\n'}. Text before the first one
+   * continues the last line if that is still open.
+   */
+  public void append(CharSequence text) {
+    int segmentStart = 0;
+    int length = text.length();
+    for (int i = 0; i < length; i++) {
+      if (text.charAt(i) == '\n') {
+        appendToLastLine(text, segmentStart, i);
+        lastLineOpen = false;
+        segmentStart = i + 1;
+      }
+    }
+    if (segmentStart < length) {
+      appendToLastLine(text, segmentStart, length);
+      lastLineOpen = true;
+    }
+  }
+
+  public void clear() {
+    chars.setLength(0);
+    lineCount = 0;
+    lastLineOpen = false;
+  }
+
+  /** True if the last line has no {@code '\n'} yet, so that the next append adds to it. */
+  public boolean isLastLineOpen() {
+    return lastLineOpen;
+  }
+
+  public int lineCount() {
+    return lineCount;
+  }
+
+  /** All lines back to back; index it with {@link #lineStart} and {@link #lineEnd}. */
+  public CharSequence chars() {
+    return chars;
+  }
+
+  public int lineStart(int line) {
+    return lineStarts[line];
+  }
+
+  public int lineEnd(int line) {
+    return line + 1 < lineCount ? lineStarts[line + 1] : chars.length();
+  }
+
+  private void appendToLastLine(CharSequence text, int start, int end) {
+    if (!lastLineOpen) {
+      if (lineCount == lineStarts.length) lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+      lineStarts[lineCount++] = chars.length();
+    }
+    chars.append(text, start, end);
+  }
+}
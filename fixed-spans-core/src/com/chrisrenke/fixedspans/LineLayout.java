@@ -0,0 +1,26 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+/** Measures and draws a single line of text, as {@link MonospaceLayout} and friends do. */
+public interface LineLayout {
+  /** Width of {@code text} between {@code start} and {@code end}, rounded up. */
+  int measure(GlyphMetrics metrics, CharSequence text, int start, int end);
+
+  /** Draws {@code text} between {@code start} and {@code end}, starting at {@code x}. */
+  void draw(GlyphMetrics metrics, GlyphSink sink, CharSequence text, int start, int end, float x);
+}
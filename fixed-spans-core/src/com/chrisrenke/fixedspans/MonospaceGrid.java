@@ -0,0 +1,164 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import java.util.Arrays;
+
+/**
+ * Rows of text wrapped at a fixed column count, one cell per grapheme cluster as drawn by
+ * {@link MonospaceLayout}. Rows break after every {@code '\n'} and after {@code columns} cells.
+ * Because every cell is equally wide, moving between offsets, rows and columns never measures a
+ * glyph: it is arithmetic on a row index for text of standalone chars, plus a binary search over
+ * the cluster starts for text with longer clusters.
+ */
+public final class MonospaceGrid {
+  /** Offsets per bucket of the offset to row lookup. */
+  private static final int BUCKET_SHIFT = 6;
+
+  private final CharSequence text;
+  private final int columns;
+  private final int clusterCount;
+  /** Start of every cluster followed by the length, or null if every cluster is one char. */
+  private final int[] clusterStarts;
+  /** First cluster of every row. */
+  private int[] rowClusters = new int[16];
+  private int rowCount;
+  private int widestRow;
+  /** Row containing the first offset of each bucket, so finding a row never searches. */
+  private final int[] bucketRows;
+
+  public MonospaceGrid(CharSequence text, int columns) {
+    if (columns < 1) throw new IllegalArgumentException("columns < 1: " + columns);
+    this.text = text;
+    this.columns = columns;
+
+    int length = text.length();
+    ClusterIndex clusters = new ClusterIndex().update(text, 0, length);
+    clusterCount = clusters.count();
+    if (clusters.isSimple()) {
+      clusterStarts = null;
+    } else {
+      clusterStarts = new int[clusterCount + 1];
+      for (int cluster = 0; cluster < clusterCount; cluster++) {
+        clusterStarts[cluster] = clusters.start(cluster);
+      }
+      clusterStarts[clusterCount] = length;
+    }
+
+    int rowStart = 0;
+    while (true) {
+      addRow(rowStart);
+      int rowEnd = rowStart;
+      int wrap = (int) Math.min((long) rowStart + columns, clusterCount);
+      while (rowEnd < wrap && !isBreak(rowEnd)) rowEnd++;
+      widestRow = Math.max(widestRow, rowEnd - rowStart);
+      if (rowEnd < clusterCount && isBreak(rowEnd)) {
+        rowStart = rowEnd + 1;
+      } else if (rowEnd < clusterCount) {
+        rowStart = rowEnd;
+      } else {
+        break;
+      }
+    }
+
+    bucketRows = new int[(length >> BUCKET_SHIFT) + 1];
+    for (int bucket = 0, row = 0; bucket < bucketRows.length; bucket++) {
+      int offset = bucket << BUCKET_SHIFT;
+      while (row + 1 < rowCount && rowStart(row + 1) <= offset) row++;
+      bucketRows[bucket] = row;
+    }
+  }
+
+  public CharSequence text() {
+    return text;
+  }
+
+  public int columns() {
+    return columns;
+  }
+
+  public int rowCount() {
+    return rowCount;
+  }
+
+  /** Cell count of the longest row, at most {@link #columns()}. */
+  public int widestRow() {
+    return widestRow;
+  }
+
+  public int rowStart(int row) {
+    return clusterStart(rowClusters[row]);
+  }
+
+  /** End of {@code row}, excluding its {@code '\n'} if it has one. */
+  public int rowEnd(int row) {
+    return clusterStart(rowEndCluster(row));
+  }
+
+  /**
+   * Row containing {@code offset}. An offset on a wrap belongs to the row it starts. Walks at most
+   * the rows starting within one bucket of offsets.
+   */
+  public int rowOf(int offset) {
+    offset = Math.max(0, Math.min(offset, text.length()));
+    int row = bucketRows[offset >> BUCKET_SHIFT];
+    while (row + 1 < rowCount && rowStart(row + 1) <= offset) row++;
+    return row;
+  }
+
+  /** Column of the cell containing {@code offset}. */
+  public int columnOf(int offset) {
+    offset = Math.max(0, Math.min(offset, text.length()));
+    return clusterAt(offset) - rowClusters[rowOf(offset)];
+  }
+
+  /** Offset of the cell at {@code row} and {@code column}, clamped to the grid. */
+  public int offsetAt(int row, int column) {
+    row = Math.max(0, Math.min(row, rowCount - 1));
+    int rowCluster = rowClusters[row];
+    return clusterStart(rowCluster
+        + Math.max(0, Math.min(column, rowEndCluster(row) - rowCluster)));
+  }
+
+  /** First cluster after the cells of {@code row}, which is its line break if it has one. */
+  private int rowEndCluster(int row) {
+    if (row == rowCount - 1) return clusterCount;
+    int next = rowClusters[row + 1];
+    return isBreak(next - 1) ? next - 1 : next;
+  }
+
+  private int clusterStart(int cluster) {
+    return clusterStarts != null ? clusterStarts[cluster] : cluster;
+  }
+
+  /** Cluster containing {@code offset}, or the cluster count for the end of the text. */
+  private int clusterAt(int offset) {
+    if (clusterStarts == null) return offset;
+    int index = Arrays.binarySearch(clusterStarts, 0, clusterCount + 1, offset);
+    return index >= 0 ? index : -index - 2;
+  }
+
+  /** Whether {@code cluster} ends in a {@code '\n'}, on its own or after a {@code '\r'}. */
+  private boolean isBreak(int cluster) {
+    return text.charAt(clusterStart(cluster + 1) - 1) == '\n';
+  }
+
+  private void addRow(int cluster) {
+    if (rowCount == rowClusters.length) rowClusters = Arrays.copyOf(rowClusters, rowCount * 2);
+    rowClusters[rowCount++] = cluster;
+  }
+}
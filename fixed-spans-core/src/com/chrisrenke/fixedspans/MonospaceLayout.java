@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import static java.lang.Math.ceil;
+
+/**
+ * Lays a run of text out on equal width cells, one per grapheme cluster, centering every cluster
+ * in its cell.
+ */
+public final class MonospaceLayout implements LineLayout {
+  public static final String REFERENCE_CHARACTERS = "MW";
+
+  private final String relativeCharacters;
+  private final ClusterIndex clusters = new ClusterIndex();
+
+  // Reused between draws so that a frame does not allocate.
+  private float[] xPositions = new float[0];
+
+  /**
+   * Cells are as wide as the widest of {@code relativeCharacters}, or as the widest cluster of
+   * the run itself if that is null.
+   */
+  public MonospaceLayout(String relativeCharacters) {
+    this.relativeCharacters = relativeCharacters;
+  }
+
+  public float cellWidth(GlyphMetrics metrics, CharSequence text, int start, int end) {
+    if (relativeCharacters != null) return metrics.maxAdvance(relativeCharacters);
+    clusters.update(text, start, end);
+    return widestCluster(metrics, text);
+  }
+
+  @Override public int measure(GlyphMetrics metrics, CharSequence text, int start, int end) {
+    int count = clusters.update(text, start, end).count();
+    return (int) ceil(count * cellWidth(metrics, text));
+  }
+
+  @Override public void draw(GlyphMetrics metrics, GlyphSink sink, CharSequence text, int start,
+      int end, float x) {
+    int count = clusters.update(text, start, end).count();
+    float monowidth = cellWidth(metrics, text);
+
+    if (!clusters.isSimple()) {
+      for (int cluster = 0; cluster < count; cluster++) {
+        float halfFreeSpace = (clusters.advance(metrics, text, cluster) - monowidth) / 2f;
+        sink.drawText(text, clusters.start(cluster), clusters.end(cluster),
+            x + (monowidth * cluster) - halfFreeSpace);
+      }
+      return;
+    }
+
+    // Every cluster is one char, so the whole run can be drawn positioned in one go.
+    if (xPositions.length < count) xPositions = new float[count];
+    for (int i = 0; i < count; i++) {
+      float textWidth = metrics.advance(text, start + i);
+      float halfFreeSpace = (textWidth - monowidth) / 2f;
+      xPositions[i] = x + (monowidth * i) - halfFreeSpace;
+    }
+    sink.drawPositioned(text, start, end, xPositions);
+  }
+
+  /** Like the public overload, for text the clusters were already updated with. */
+  private float cellWidth(GlyphMetrics metrics, CharSequence text) {
+    return relativeCharacters != null
+        ? metrics.maxAdvance(relativeCharacters)
+        : widestCluster(metrics, text);
+  }
+
+  private float widestCluster(GlyphMetrics metrics, CharSequence text) {
+    float maxWidth = 0;
+    for (int cluster = 0, count = clusters.count(); cluster < count; cluster++) {
+      maxWidth = Math.max(clusters.advance(metrics, text, cluster), maxWidth);
+    }
+    return maxWidth;
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+/**
+ * A column of tabular cells that share one width. Each cell is measured once with a
+ * {@link TabularLayout} and widens the column to fit; cells then draw from that measurement,
+ * aligned on the decimal separator or on the right edge, whatever row they are in.
+ */
+public final class TableColumnLayout {
+  public enum Alignment {
+    /** Lines up the last decimal separator of every cell, or the end of cells without one. */
+    DECIMAL,
+    RIGHT
+  }
+
+  private final TabularLayout layout;
+  private final Alignment alignment;
+  private final char decimalSeparator;
+
+  /** Widest part of any cell before its alignment point. */
+  private float leadWidth;
+  /** Widest part of any cell from its alignment point on. */
+  private float trailWidth;
+
+  public TableColumnLayout(TabularLayout layout, Alignment alignment, char decimalSeparator) {
+    this.layout = layout;
+    this.alignment = alignment;
+    this.decimalSeparator = decimalSeparator;
+  }
+
+  public Alignment alignment() {
+    return alignment;
+  }
+
+  /** Width every cell of the column takes. */
+  public int width() {
+    return (int) Math.ceil(leadWidth + trailWidth);
+  }
+
+  /**
+   * Widens the column to fit the cell. Returns the width of the cell before its alignment point,
+   * which {@link #draw} takes so that the cell is not measured again.
+   */
+  public float fit(GlyphMetrics metrics, CharSequence text, int start, int end) {
+    int split = split(text, start, end);
+    float lead = layout.width(metrics, text, start, split);
+    float trail = split == end ? 0 : layout.width(metrics, text, split, end);
+    leadWidth = Math.max(lead, leadWidth);
+    trailWidth = Math.max(trail, trailWidth);
+    return lead;
+  }
+
+  /** Draws a cell whose {@code lead} was returned by {@link #fit} for the same metrics. */
+  public void draw(GlyphMetrics metrics, GlyphSink sink, CharSequence text, int start, int end,
+      float lead, float x) {
+    layout.draw(metrics, sink, text, start, end, x + leadWidth - lead);
+  }
+
+  /** Forgets every cell, e.g. before the column is filled with new values. */
+  public void reset() {
+    leadWidth = 0;
+    trailWidth = 0;
+  }
+
+  private int split(CharSequence text, int start, int end) {
+    if (alignment == Alignment.RIGHT) return end;
+    for (int i = end - 1; i >= start; i--) {
+      if (text.charAt(i) == decimalSeparator) return i;
+    }
+    return end;
+  }
+}
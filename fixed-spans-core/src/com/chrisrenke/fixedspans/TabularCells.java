@@ -0,0 +1,126 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+/**
+ * The cells of a tabular value that changes over time, such as a price. Each new value is compared
+ * with the last, and the horizontal runs whose pixels may differ are reported, merged where they
+ * touch. Since tabular cells keep their positions while the width stays put, changing one digit
+ * dirties one cell.
+ */
+public final class TabularCells {
+  private final TabularLayout layout;
+
+  private char[] chars = new char[0];
+  private float[] edges = new float[1];
+  private int length;
+
+  private char[] newChars = new char[0];
+  private float[] newEdges = new float[1];
+
+  /** Dirty runs as (left, right) pairs. */
+  private float[] runs = new float[8];
+  private int runCount;
+
+  public TabularCells(TabularLayout layout) {
+    this.layout = layout;
+  }
+
+  public TabularLayout layout() {
+    return layout;
+  }
+
+  /** Width of the current value, rounded up as {@link TabularLayout#measure} does. */
+  public int width() {
+    return (int) Math.ceil(edges[length]);
+  }
+
+  /**
+   * Replaces the current value with {@code value} and returns the number of dirty runs, which
+   * can then be read with {@link #runLeft} and {@link #runRight}. The first value dirties all of
+   * its cells.
+   */
+  public int update(GlyphMetrics metrics, CharSequence value) {
+    int newLength = value.length();
+    if (newChars.length < newLength) {
+      newChars = new char[newLength];
+      newEdges = new float[newLength + 1];
+    }
+    for (int i = 0; i < newLength; i++) {
+      newChars[i] = value.charAt(i);
+    }
+    layout.cellEdges(metrics, value, 0, newLength, newEdges);
+
+    runCount = 0;
+    for (int i = 0; i < newLength; ) {
+      // A cell covers every char sharing its left edge, i.e. a whole cluster.
+      int end = i + 1;
+      while (end < newLength && newEdges[end] == newEdges[i]) end++;
+      float left = newEdges[i];
+      float right = newEdges[end];
+      boolean dirty = end > length;
+      if (!dirty) {
+        for (int j = i; j < end; j++) {
+          dirty |= chars[j] != newChars[j];
+        }
+        dirty |= edges[i] != left || edges[end] != right;
+      }
+      if (dirty) {
+        if (i < length) {
+          left = Math.min(left, edges[i]);
+          right = Math.max(right, edges[Math.min(end, length)]);
+        }
+        addRun(left, right);
+      }
+      i = end;
+    }
+    if (length > newLength) addRun(edges[newLength], edges[length]);
+
+    // The new value becomes the current one; the old buffers are reused for the next.
+    char[] swapChars = chars;
+    chars = newChars;
+    newChars = swapChars;
+    float[] swapEdges = edges;
+    edges = newEdges;
+    newEdges = swapEdges;
+    length = newLength;
+    return runCount;
+  }
+
+  public float runLeft(int run) {
+    return runs[run * 2];
+  }
+
+  public float runRight(int run) {
+    return runs[run * 2 + 1];
+  }
+
+  private void addRun(float left, float right) {
+    if (runCount > 0 && left <= runs[runCount * 2 - 1]) {
+      runs[runCount * 2 - 1] = Math.max(right, runs[runCount * 2 - 1]);
+      return;
+    }
+    if (runs.length < runCount * 2 + 2) {
+      float[] grown = new float[runs.length * 2];
+      System.arraycopy(runs, 0, grown, 0, runs.length);
+      runs = grown;
+    }
+    runs[runCount * 2] = left;
+    runs[runCount * 2 + 1] = right;
+    runCount++;
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import static com.chrisrenke.fixedspans.WidthClassTable.NO_CLASS;
+
+/**
+ * Lays a run of text out so that every character of a width class takes the width of the widest
+ * character of that class. Other grapheme clusters keep their natural width.
+ */
+public final class TabularLayout implements LineLayout {
+  private final WidthClassTable widthClasses;
+  private final float[] classWidths;
+  private final ClusterIndex clusters = new ClusterIndex();
+
+  public TabularLayout(WidthClassTable widthClasses) {
+    this.widthClasses = widthClasses;
+    this.classWidths = new float[widthClasses.classCount()];
+  }
+
+  public WidthClassTable widthClasses() {
+    return widthClasses;
+  }
+
+  @Override public int measure(GlyphMetrics metrics, CharSequence text, int start, int end) {
+    return (int) Math.ceil(width(metrics, text, start, end));
+  }
+
+  /** Unrounded width of {@code text} between {@code start} and {@code end}. */
+  public float width(GlyphMetrics metrics, CharSequence text, int start, int end) {
+    measureClassWidths(metrics);
+    clusters.update(text, start, end);
+    float totalWidth = 0;
+
+    for (int cluster = 0, count = clusters.count(); cluster < count; cluster++) {
+      totalWidth += cellWidth(metrics, text, cluster);
+    }
+    return totalWidth;
+  }
+
+  /**
+   * Writes the left edge of every char between {@code start} and {@code end} to {@code edges},
+   * followed by the right edge of the run. Chars after the first of a cluster share its left
+   * edge.
+   */
+  public void cellEdges(GlyphMetrics metrics, CharSequence text, int start, int end,
+      float[] edges) {
+    measureClassWidths(metrics);
+    clusters.update(text, start, end);
+    float x = 0;
+
+    for (int cluster = 0, count = clusters.count(); cluster < count; cluster++) {
+      for (int i = clusters.start(cluster); i < clusters.end(cluster); i++) {
+        edges[i - start] = x;
+      }
+      x += cellWidth(metrics, text, cluster);
+    }
+    edges[end - start] = x;
+  }
+
+  @Override public void draw(GlyphMetrics metrics, GlyphSink sink, CharSequence text, int start,
+      int end, float x) {
+    measureClassWidths(metrics);
+    clusters.update(text, start, end);
+
+    for (int cluster = 0, count = clusters.count(); cluster < count; cluster++) {
+      float charWidth = clusters.advance(metrics, text, cluster);
+      float monoWidth = cellWidth(metrics, text, cluster);
+      float halfFreeSpace = (monoWidth - charWidth) / 2f;
+      sink.drawText(text, clusters.start(cluster), clusters.end(cluster), x + halfFreeSpace);
+      x += monoWidth;
+    }
+  }
+
+  /**
+   * Width of a cluster of the last indexed text: its class width if it is a single code point of
+   * a class, its natural width otherwise.
+   */
+  private float cellWidth(GlyphMetrics metrics, CharSequence text, int cluster) {
+    int clusterStart = clusters.start(cluster);
+    if (clusters.end(cluster) - clusterStart == CodePoints.charCount(text, clusterStart)) {
+      int widthClass = widthClasses.classOf(Character.codePointAt(text, clusterStart));
+      if (widthClass != NO_CLASS) return classWidths[widthClass];
+    }
+    return clusters.advance(metrics, text, cluster);
+  }
+
+  private void measureClassWidths(GlyphMetrics metrics) {
+    for (int widthClass = 0; widthClass < classWidths.length; widthClass++) {
+      classWidths[widthClass] = metrics.maxAdvance(widthClasses.characters(widthClass));
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiled mapping from characters to width classes. Every character in a class is padded to the
+ * width of the widest character of that class; characters in no class keep their natural width.
+ * Lookups are constant time and allocation free: the BMP is a two-level dense table and
+ * supplementary code points live in a small open-addressed hash table.
+ */
+public final class WidthClassTable {
+  public static final int NO_CLASS = -1;
+
+  public static final String DIGITS = "0123456789";
+  public static final String DELIMITERS = ",.";
+  public static final String CURRENCY_SIGNS = "$\u00a2\u00a3\u00a5\u20a9\u20ac\u20b9\u20bd";
+  public static final String SIGNS_AND_BRACKETS = "+-\u2212\u00b1()";
+
+  private static final int PAGE_SHIFT = 8;
+  private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+
+  /** Values are {@code class + 1} so that a zeroed page means "no class". */
+  private final byte[][] pages;
+  private final int[] supplementaryKeys;
+  private final byte[] supplementaryValues;
+  private final String[] classCharacters;
+
+  private WidthClassTable(byte[][] pages, int[] supplementaryKeys, byte[] supplementaryValues,
+      String[] classCharacters) {
+    this.pages = pages;
+    this.supplementaryKeys = supplementaryKeys;
+    this.supplementaryValues = supplementaryValues;
+    this.classCharacters = classCharacters;
+  }
+
+  /** Returns the width class of {@code codePoint}, or {@link #NO_CLASS}. */
+  public int classOf(int codePoint) {
+    if (codePoint <= Character.MAX_VALUE) {
+      byte[] page = pages[codePoint >>> PAGE_SHIFT];
+      return page == null ? NO_CLASS : page[codePoint & PAGE_MASK] - 1;
+    }
+    if (supplementaryKeys.length == 0) return NO_CLASS;
+    int mask = supplementaryKeys.length - 1;
+    for (int slot = mix(codePoint) & mask; ; slot = (slot + 1) & mask) {
+      int key = supplementaryKeys[slot];
+      if (key == codePoint) return supplementaryValues[slot] - 1;
+      if (key == 0) return NO_CLASS;
+    }
+  }
+
+  public int classCount() {
+    return classCharacters.length;
+  }
+
+  /** All characters of {@code widthClass}; the widest of them sets the width of the class. */
+  public String characters(int widthClass) {
+    return classCharacters[widthClass];
+  }
+
+  private static int mix(int codePoint) {
+    int h = codePoint * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Builds a {@link WidthClassTable}. Classes are numbered in the order they are added; a
+   * character that appears in more than one class belongs to the first.
+   */
+  public static final class Builder {
+    private final List<String> classes = new ArrayList<String>();
+
+    public Builder addClass(String characters) {
+      if (characters == null) throw new IllegalArgumentException("characters == null");
+      if (classes.size() == Byte.MAX_VALUE - 1) {
+        throw new IllegalStateException("Too many width classes.");
+      }
+      classes.add(characters);
+      return this;
+    }
+
+    public WidthClassTable build() {
+      byte[][] pages = new byte[(Character.MAX_VALUE >>> PAGE_SHIFT) + 1][];
+      List<Integer> supplementary = new ArrayList<Integer>();
+      List<Byte> supplementaryClasses = new ArrayList<Byte>();
+      String[] classCharacters = new String[classes.size()];
+
+      for (int widthClass = 0; widthClass < classes.size(); widthClass++) {
+        String characters = classes.get(widthClass);
+        classCharacters[widthClass] = characters;
+        for (int i = 0; i < characters.length(); ) {
+          int codePoint = characters.codePointAt(i);
+          i += Character.charCount(codePoint);
+          byte value = (byte) (widthClass + 1);
+          if (codePoint <= Character.MAX_VALUE) {
+            byte[] page = pages[codePoint >>> PAGE_SHIFT];
+            if (page == null) page = pages[codePoint >>> PAGE_SHIFT] = new byte[PAGE_MASK + 1];
+            if (page[codePoint & PAGE_MASK] == 0) page[codePoint & PAGE_MASK] = value;
+          } else if (!supplementary.contains(codePoint)) {
+            supplementary.add(codePoint);
+            supplementaryClasses.add(value);
+          }
+        }
+      }
+
+      int capacity = 0;
+      if (!supplementary.isEmpty()) {
+        capacity = Integer.highestOneBit(supplementary.size() * 2 - 1) << 1;
+      }
+      int[] keys = new int[capacity];
+      byte[] values = new byte[capacity];
+      for (int i = 0; i < supplementary.size(); i++) {
+        int codePoint = supplementary.get(i);
+        int slot = mix(codePoint) & (capacity - 1);
+        while (keys[slot] != 0) slot = (slot + 1) & (capacity - 1);
+        keys[slot] = codePoint;
+        values[slot] = supplementaryClasses.get(i);
+      }
+      return new WidthClassTable(pages, keys, values, classCharacters);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import java.lang.management.ManagementFactory;
+
+/** Measures the bytes the test thread allocates, where the JVM can tell. */
+final class Allocations {
+  private static final int WARM_UP_RUNS = 2000;
+
+  private Allocations() {
+  }
+
+  static boolean isSupported() {
+    Object threads = ManagementFactory.getThreadMXBean();
+    return threads instanceof com.sun.management.ThreadMXBean
+        && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()
+        && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled();
+  }
+
+  /** Average bytes allocated by one run of {@code work}, once it is warmed up. */
+  static long perRun(Runnable work, int runs) {
+    for (int i = 0; i < WARM_UP_RUNS; i++) {
+      work.run();
+    }
+    long before = allocatedBytes();
+    for (int i = 0; i < runs; i++) {
+      work.run();
+    }
+    return (allocatedBytes() - before) / runs;
+  }
+
+  private static long allocatedBytes() {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
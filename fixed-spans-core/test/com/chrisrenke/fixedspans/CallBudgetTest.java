@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import org.junit.Before;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Base for the call budget tests, which pin how often the layouts measure and draw for fixed
+ * inputs. Every test starts with fresh counts and measures with the fixed font of
+ * {@link CountingGlyphMetrics}.
+ */
+public abstract class CallBudgetTest {
+  /** Extra bytes a run may allocate per extra character before it counts as scaling. */
+  static final double BYTES_PER_CHARACTER = 0.5;
+
+  final CountingGlyphMetrics metrics = new CountingGlyphMetrics();
+  final CountingGlyphSink sink = new CountingGlyphSink();
+
+  @Before public void setUpBudget() {
+    resetCounts();
+  }
+
+  void resetCounts() {
+    metrics.reset();
+    sink.reset();
+  }
+
+  /**
+   * Asserts that {@code longRun} allocates no more per run than {@code shortRun} beyond
+   * {@link #BYTES_PER_CHARACTER} for each of its {@code extraCharacters}.
+   */
+  static void assertAllocationDoesNotScale(Runnable shortRun, Runnable longRun,
+      int extraCharacters) {
+    assumeTrue(Allocations.isSupported());
+    long shortBytes = Allocations.perRun(shortRun, 1000);
+    long longBytes = Allocations.perRun(longRun, 1000);
+    long budget = (long) (extraCharacters * BYTES_PER_CHARACTER);
+    if (longBytes - shortBytes > budget) {
+      throw new AssertionError("Allocates " + (longBytes - shortBytes) + " more bytes per run for "
+          + extraCharacters + " more characters; budget is " + budget);
+    }
+  }
+
+  static String repeat(String text, int times) {
+    StringBuilder repeated = new StringBuilder();
+    for (int i = 0; i < times; i++) {
+      repeated.append(text);
+    }
+    return repeated.toString();
+  }
+}
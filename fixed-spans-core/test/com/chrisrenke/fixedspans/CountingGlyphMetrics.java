@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+/**
+ * {@link GlyphMetrics} of a fixed font, which counts every call that measures text. Characters
+ * are 8 wide, apart from narrow punctuation and i, l and the space at 4 and M and W at 14.
+ * Nothing is cached, so the counts are what a layout asks of the platform's cache.
+ */
+final class CountingGlyphMetrics implements GlyphMetrics {
+  int advanceCalls;
+  int measureCalls;
+  int maxAdvanceCalls;
+  int advancesCalls;
+
+  void reset() {
+    advanceCalls = 0;
+    measureCalls = 0;
+    maxAdvanceCalls = 0;
+    advancesCalls = 0;
+  }
+
+  static float advance(char c) {
+    switch (c) {
+      case 'M':
+      case 'W':
+        return 14;
+      case ' ':
+      case '.':
+      case ',':
+      case 'i':
+      case 'l':
+        return 4;
+      default:
+        return 8;
+    }
+  }
+
+  static float width(CharSequence text, int start, int end) {
+    float width = 0;
+    for (int i = start; i < end; i++) {
+      width += advance(text.charAt(i));
+    }
+    return width;
+  }
+
+  @Override public float advance(CharSequence text, int index) {
+    advanceCalls++;
+    return width(text, index, index + CodePoints.charCount(text, index));
+  }
+
+  @Override public float measure(CharSequence text, int start, int end) {
+    measureCalls++;
+    return width(text, start, end);
+  }
+
+  @Override public float maxAdvance(String characters) {
+    maxAdvanceCalls++;
+    float maxWidth = 0;
+    for (int i = 0; i < characters.length(); i++) {
+      maxWidth = Math.max(advance(characters.charAt(i)), maxWidth);
+    }
+    return maxWidth;
+  }
+
+  @Override public void getAdvances(CharSequence text, int start, int end, float[] advances) {
+    advancesCalls++;
+    for (int i = start; i < end; i++) {
+      advances[i - start] = advance(text.charAt(i));
+    }
+  }
+}
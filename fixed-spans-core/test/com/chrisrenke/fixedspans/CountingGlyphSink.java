@@ -0,0 +1,37 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+/** {@link GlyphSink} that counts the runs it is handed and otherwise draws nothing. */
+final class CountingGlyphSink implements GlyphSink {
+  int drawTextCalls;
+  int drawPositionedCalls;
+
+  void reset() {
+    drawTextCalls = 0;
+    drawPositionedCalls = 0;
+  }
+
+  @Override public void drawText(CharSequence text, int start, int end, float x) {
+    drawTextCalls++;
+  }
+
+  @Override public void drawPositioned(CharSequence text, int start, int end,
+      float[] xPositions) {
+    drawPositionedCalls++;
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class CrossFadeTest {
+  private final CrossFade fade =
+      new CrossFade(0xff101010, 0xff202020, 0xff000000, 0xff000040, 0x00, 0x80);
+
+  @Test public void endsMatchTheGivenColors() {
+    fade.setParameter(0);
+    assertEquals(0xff101010, fade.textColor());
+    assertEquals(0x00000000, fade.shadowColor());
+
+    fade.setParameter(1);
+    assertEquals(0xff202020, fade.textColor());
+    assertEquals(0x80000040, fade.shadowColor());
+  }
+
+  @Test public void parametersWithinTheFadeAreLookedUp() {
+    fade.setParameter(0.5f);
+    assertEquals(0xff181818, fade.textColor());
+    assertEquals(0x40000020, fade.shadowColor());
+  }
+
+  @Test public void parametersBeyondTheEndsAreExtrapolated() {
+    fade.setParameter(1.5f);
+    assertEquals(0xff282828, fade.textColor());
+    assertEquals(0xc0000060, fade.shadowColor());
+
+    fade.setParameter(-1);
+    assertEquals(0xff000000, fade.textColor());
+  }
+}
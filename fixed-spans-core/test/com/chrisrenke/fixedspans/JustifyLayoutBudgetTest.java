@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class JustifyLayoutBudgetTest extends CallBudgetTest {
+  private static final String LINE = "hello world foo bar";
+  private static final int WORDS = 4;
+  private static final float LINE_WIDTH = CountingGlyphMetrics.width(LINE, 0, LINE.length());
+  private static final Object KEY = new Object();
+
+  @Test public void planMeasuresTheLineOnce() {
+    JustifyLayout layout = new JustifyLayout(300, -1);
+    layout.prepare(metrics, KEY, LINE, 0, LINE.length());
+    assertEquals(1, metrics.advancesCalls);
+    assertEquals(0, metrics.advanceCalls);
+    assertEquals(0, metrics.measureCalls);
+  }
+
+  @Test public void unchangedLineIsNotPlannedAgain() {
+    JustifyLayout layout = new JustifyLayout(300, 2f);
+    layout.prepare(metrics, KEY, LINE, 0, LINE.length());
+    resetCounts();
+
+    layout.prepare(metrics, KEY, LINE, 0, LINE.length());
+    // The same line moved within its text.
+    String moved = "moved\n" + LINE;
+    layout.prepare(metrics, KEY, moved, 6, moved.length());
+    assertEquals(0, metrics.advancesCalls);
+    assertEquals(0, metrics.measureCalls);
+  }
+
+  @Test public void otherMetricsPlanAgain() {
+    JustifyLayout layout = new JustifyLayout(300, -1);
+    layout.prepare(metrics, KEY, LINE, 0, LINE.length());
+    layout.prepare(metrics, new Object(), LINE, 0, LINE.length());
+    assertEquals(2, metrics.advancesCalls);
+  }
+
+  @Test public void whitespaceModeDrawsOneRunPerWord() {
+    assertEquals(WORDS, drawCalls(new JustifyLayout(300, -1)));
+  }
+
+  @Test public void characterSpacingDrawsOneCallPerCharacter() {
+    assertEquals(LINE.length(), drawCalls(new JustifyLayout(300, 2f)));
+  }
+
+  @Test public void invisibleCharacterSpacingDrawsOneRunPerWord() {
+    assertEquals(WORDS, drawCalls(new JustifyLayout(LINE_WIDTH + 1, 2f)));
+  }
+
+  @Test public void overfullLineDrawsOneRun() {
+    assertEquals(1, drawCalls(new JustifyLayout(LINE_WIDTH - 1, -1)));
+  }
+
+  @Test public void redrawAllocationDoesNotScaleWithWordLength() {
+    final String longLine = "hellohellohello worldworldworld foofoofoo barbarbar";
+    final JustifyLayout shortLayout = new JustifyLayout(1000, -1);
+    final JustifyLayout longLayout = new JustifyLayout(1000, -1);
+    assertAllocationDoesNotScale(new Runnable() {
+      @Override public void run() {
+        shortLayout.prepare(metrics, KEY, LINE, 0, LINE.length());
+        shortLayout.draw(sink, LINE, 0, LINE.length(), 0);
+      }
+    }, new Runnable() {
+      @Override public void run() {
+        longLayout.prepare(metrics, KEY, longLine, 0, longLine.length());
+        longLayout.draw(sink, longLine, 0, longLine.length(), 0);
+      }
+    }, longLine.length() - LINE.length());
+  }
+
+  private int drawCalls(JustifyLayout layout) {
+    layout.prepare(metrics, KEY, LINE, 0, LINE.length());
+    layout.draw(sink, LINE, 0, LINE.length(), 0);
+    return sink.drawTextCalls;
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/** The {@link JustifyPlanStore} file format, on a plain JVM. */
+public class JustifyPlanStoreTest {
+  private static final String TEXT = "The quick brown fox\njumps over the lazy dog";
+  private static final String PARAMETERS = "default|16.0|1.0|0.0|0.0|1|200|false|-1.0|WHITESPACE";
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  private File root;
+  private JustifyPlanStore store;
+
+  @Before public void setUp() throws IOException {
+    root = folder.newFolder("plans");
+    store = new JustifyPlanStore(root, 64 * 1024);
+  }
+
+  @Test public void storedPlanReadsBackUnchanged() {
+    JustifyPlan plan = plan();
+    store.put(TEXT, PARAMETERS, plan);
+
+    JustifyPlan read = store.get(TEXT, PARAMETERS);
+    assertNotNull(read);
+    assertEquals(plan.lineCount(), read.lineCount());
+    for (int line = 0; line < plan.lineCount(); line++) {
+      assertEquals(plan.lineEnd(line), read.lineEnd(line));
+      assertEquals(plan.flags(line), read.flags(line));
+      assertArrayEquals(plan.offsets(line), read.offsets(line), 0f);
+    }
+  }
+
+  @Test public void planSurvivesANewStoreOnTheSameDirectory() {
+    store.put(TEXT, PARAMETERS, plan());
+    assertNotNull(new JustifyPlanStore(root, 64 * 1024).get(TEXT, PARAMETERS));
+  }
+
+  @Test public void otherTextOrParametersFindNothing() {
+    store.put(TEXT, PARAMETERS, plan());
+    assertNull(store.get(TEXT.replace('q', 'Q'), PARAMETERS));
+    assertNull(store.get(TEXT, PARAMETERS.replace("200", "201")));
+  }
+
+  @Test public void sameCharsWithOtherSpansFindNothing() {
+    store.put(TEXT, withSpans(monospaced(4, 9, "MW")), plan());
+
+    assertNotNull(store.get(TEXT, withSpans(monospaced(4, 9, "MW"))));
+    assertNull(store.get(TEXT, withSpans(new JustifyPlanSpans())));
+    assertNull(store.get(TEXT, withSpans(monospaced(4, 10, "MW"))));
+    assertNull(store.get(TEXT, withSpans(monospaced(4, 9, "0123456789"))));
+    assertNull(store.get(TEXT, withSpans(new JustifyPlanSpans().add("TabularSpan", 4, 9, "MW"))));
+    assertNull(store.get(TEXT, withSpans(monospaced(4, 9, "MW").add("MonospaceSpan", 10, 15, ""))));
+  }
+
+  @Test public void truncatedFileIsRejectedAndDeleted() throws IOException {
+    store.put(TEXT, PARAMETERS, plan());
+    File file = onlyPlanFile();
+    RandomAccessFile output = new RandomAccessFile(file, "rw");
+    try {
+      output.setLength(output.length() - 3);
+    } finally {
+      output.close();
+    }
+
+    assertNull(store.get(TEXT, PARAMETERS));
+    assertFalse(file.exists());
+  }
+
+  @Test public void fileOfAnotherVersionIsRejected() throws IOException {
+    store.put(TEXT, PARAMETERS, plan());
+    File file = onlyPlanFile();
+    RandomAccessFile output = new RandomAccessFile(file, "rw");
+    try {
+      output.seek(4); // Past the magic number.
+      output.writeInt(JustifyPlanStore.VERSION + 1);
+    } finally {
+      output.close();
+    }
+
+    assertNull(store.get(TEXT, PARAMETERS));
+    assertFalse(file.exists());
+  }
+
+  @Test public void openingDeletesPlansOfOtherVersions() throws IOException {
+    File old = new File(root, "v" + (JustifyPlanStore.VERSION - 1));
+    assertTrue(old.mkdirs());
+    assertTrue(new File(old, "1234.plan").createNewFile());
+
+    assertTrue(store.open());
+    assertFalse(old.exists());
+    assertTrue(new File(root, "v" + JustifyPlanStore.VERSION).isDirectory());
+  }
+
+  @Test public void leastRecentlyReadPlansAreEvictedFirst() {
+    String first = "1 " + TEXT;
+    String second = "2 " + TEXT;
+    String third = "3 " + TEXT;
+    store.put(first, PARAMETERS, plan(first));
+    store = new JustifyPlanStore(root, 2 * onlyPlanFile().length());
+    store.put(second, PARAMETERS, plan(second));
+
+    assertNotNull(store.get(first, PARAMETERS));
+    store.put(third, PARAMETERS, plan(third));
+
+    assertTrue(planFile(first).exists());
+    assertFalse(planFile(second).exists());
+    assertTrue(planFile(third).exists());
+  }
+
+  @Test public void orderOfUseSurvivesANewStore() {
+    String first = "1 " + TEXT;
+    String second = "2 " + TEXT;
+    String third = "3 " + TEXT;
+    store.put(first, PARAMETERS, plan(first));
+    long maxBytes = 2 * onlyPlanFile().length();
+    store = new JustifyPlanStore(root, maxBytes);
+    store.put(second, PARAMETERS, plan(second));
+    assertNotNull(store.get(first, PARAMETERS));
+    // Modification times say the first plan is the oldest, so only the journal keeps it.
+    assertTrue(planFile(first).setLastModified(0));
+
+    store = new JustifyPlanStore(root, maxBytes);
+    store.put(third, PARAMETERS, plan(third));
+
+    assertTrue(planFile(first).exists());
+    assertFalse(planFile(second).exists());
+    assertTrue(planFile(third).exists());
+  }
+
+  private static JustifyPlan plan() {
+    return plan(TEXT);
+  }
+
+  /** Two lines of {@code text}: a justified one drawn by word, and a last one left as it is. */
+  private static JustifyPlan plan(String text) {
+    JustifyPlan plan = new JustifyPlan();
+    float[] offsets = new float[19];
+    for (int i = 0; i < offsets.length; i++) {
+      offsets[i] = i * 9.5f;
+    }
+    plan.addLine(20, true, true, true, offsets, offsets.length);
+    plan.addLine(text.length(), false, false, false, offsets, 0);
+    return plan;
+  }
+
+  private File planFile(String text) {
+    String name = Long.toHexString(JustifyPlanStore.key(text, PARAMETERS)) + ".plan";
+    return new File(new File(root, "v" + JustifyPlanStore.VERSION), name);
+  }
+
+  private static JustifyPlanSpans monospaced(int start, int end, String relativeCharacters) {
+    return new JustifyPlanSpans().add("MonospaceSpan", start, end, relativeCharacters);
+  }
+
+  private static String withSpans(JustifyPlanSpans spans) {
+    return PARAMETERS + '|' + spans;
+  }
+
+  private File onlyPlanFile() {
+    File[] files = new File(root, "v" + JustifyPlanStore.VERSION).listFiles(new FileFilter() {
+      @Override public boolean accept(File file) {
+        return file.getName().endsWith(".plan");
+      }
+    });
+    assertEquals(1, files.length);
+    return files[0];
+  }
+}
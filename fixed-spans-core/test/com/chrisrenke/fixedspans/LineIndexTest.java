@@ -0,0 +1,68 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LineIndexTest {
+  private final LineIndex lines = new LineIndex();
+
+  @Test public void terminatedAppendsAddOneLineEach() {
+    lines.append("a\n");
+    lines.append("b\n");
+    assertEquals(2, lines.lineCount());
+    assertEquals("a", line(0));
+    assertEquals("b", line(1));
+    assertFalse(lines.isLastLineOpen());
+  }
+
+  @Test public void openLineIsContinuedByTheNextAppend() {
+    lines.append("a\nb");
+    assertEquals(2, lines.lineCount());
+    assertTrue(lines.isLastLineOpen());
+
+    lines.append("c\nd\n");
+    assertEquals(3, lines.lineCount());
+    assertEquals("a", line(0));
+    assertEquals("bc", line(1));
+    assertEquals("d", line(2));
+  }
+
+  @Test public void emptyLinesAreKept() {
+    lines.append("\n\na\n");
+    assertEquals(3, lines.lineCount());
+    assertEquals("", line(0));
+    assertEquals("", line(1));
+    assertEquals("a", line(2));
+  }
+
+  @Test public void clearForgetsTheOpenLine() {
+    lines.append("a");
+    lines.clear();
+    lines.append("b\n");
+    assertEquals(1, lines.lineCount());
+    assertEquals("b", line(0));
+  }
+
+  private String line(int line) {
+    return lines.chars().subSequence(lines.lineStart(line), lines.lineEnd(line)).toString();
+  }
+}
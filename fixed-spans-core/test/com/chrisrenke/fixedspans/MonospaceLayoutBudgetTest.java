@@ -0,0 +1,93 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import org.junit.Test;
+
+import static com.chrisrenke.fixedspans.MonospaceLayout.REFERENCE_CHARACTERS;
+import static org.junit.Assert.assertEquals;
+
+public class MonospaceLayoutBudgetTest extends CallBudgetTest {
+  private static final String TEXT = "1234567812345678";
+
+  @Test public void measureOnlyAsksForTheReferenceWidth() {
+    MonospaceLayout layout = new MonospaceLayout(REFERENCE_CHARACTERS);
+    assertEquals(16 * 14, layout.measure(metrics, TEXT, 0, TEXT.length()));
+    assertEquals(1, metrics.maxAdvanceCalls);
+    assertEquals(0, metrics.advanceCalls);
+    assertEquals(0, metrics.measureCalls);
+  }
+
+  @Test public void relativeMeasureTakesOneAdvancePerCharacter() {
+    MonospaceLayout layout = new MonospaceLayout(null);
+    layout.measure(metrics, TEXT, 0, TEXT.length());
+    assertEquals(TEXT.length(), metrics.advanceCalls);
+    assertEquals(0, metrics.maxAdvanceCalls);
+    assertEquals(0, metrics.measureCalls);
+  }
+
+  @Test public void drawTakesOneAdvancePerCharacterAndDrawsOneRun() {
+    MonospaceLayout layout = new MonospaceLayout(REFERENCE_CHARACTERS);
+    layout.draw(metrics, sink, TEXT, 0, TEXT.length(), 0);
+    assertEquals(1, metrics.maxAdvanceCalls);
+    assertEquals(TEXT.length(), metrics.advanceCalls);
+    assertEquals(0, metrics.measureCalls);
+    assertEquals(1, sink.drawPositionedCalls);
+    assertEquals(0, sink.drawTextCalls);
+  }
+
+  @Test public void clustersAreDrawnOneRunEach() {
+    // Two letters with combining accents, then two plain ones.
+    String text = "e\u0301a\u0300bc";
+    MonospaceLayout layout = new MonospaceLayout(REFERENCE_CHARACTERS);
+    layout.draw(metrics, sink, text, 0, text.length(), 0);
+    assertEquals(4, sink.drawTextCalls);
+    assertEquals(0, sink.drawPositionedCalls);
+    // Only the accented clusters are measured as a unit.
+    assertEquals(2, metrics.measureCalls);
+    assertEquals(2, metrics.advanceCalls);
+  }
+
+  @Test public void drawAllocationDoesNotScaleWithLength() {
+    final String longText = repeat(TEXT, 16);
+    final MonospaceLayout shortLayout = new MonospaceLayout(REFERENCE_CHARACTERS);
+    final MonospaceLayout longLayout = new MonospaceLayout(REFERENCE_CHARACTERS);
+    assertAllocationDoesNotScale(new Runnable() {
+      @Override public void run() {
+        shortLayout.draw(metrics, sink, TEXT, 0, TEXT.length(), 0);
+      }
+    }, new Runnable() {
+      @Override public void run() {
+        longLayout.draw(metrics, sink, longText, 0, longText.length(), 0);
+      }
+    }, longText.length() - TEXT.length());
+  }
+
+  @Test public void measureAllocationDoesNotScaleWithLength() {
+    final String longText = repeat(TEXT, 16);
+    final MonospaceLayout layout = new MonospaceLayout(REFERENCE_CHARACTERS);
+    assertAllocationDoesNotScale(new Runnable() {
+      @Override public void run() {
+        layout.measure(metrics, TEXT, 0, TEXT.length());
+      }
+    }, new Runnable() {
+      @Override public void run() {
+        layout.measure(metrics, longText, 0, longText.length());
+      }
+    }, longText.length() - TEXT.length());
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import org.junit.Test;
+
+import static com.chrisrenke.fixedspans.WidthClassTable.DELIMITERS;
+import static com.chrisrenke.fixedspans.WidthClassTable.DIGITS;
+import static org.junit.Assert.assertEquals;
+
+public class TabularLayoutBudgetTest extends CallBudgetTest {
+  private static final String TEXT = "$1,234.56";
+  private static final WidthClassTable WIDTH_CLASSES =
+      new WidthClassTable.Builder().addClass(DELIMITERS).addClass(DIGITS).build();
+
+  @Test public void measureAsksForEachClassWidthAndTheOtherCharacters() {
+    TabularLayout layout = new TabularLayout(WIDTH_CLASSES);
+    layout.measure(metrics, TEXT, 0, TEXT.length());
+    assertEquals(WIDTH_CLASSES.classCount(), metrics.maxAdvanceCalls);
+    // Only the dollar sign is in no class.
+    assertEquals(1, metrics.advanceCalls);
+    assertEquals(0, metrics.measureCalls);
+  }
+
+  @Test public void drawIssuesOneCallPerCharacter() {
+    TabularLayout layout = new TabularLayout(WIDTH_CLASSES);
+    layout.draw(metrics, sink, TEXT, 0, TEXT.length(), 0);
+    assertEquals(TEXT.length(), sink.drawTextCalls);
+    assertEquals(0, sink.drawPositionedCalls);
+    assertEquals(WIDTH_CLASSES.classCount(), metrics.maxAdvanceCalls);
+    // Every character to center it in its cell, and the dollar sign again for its cell width.
+    assertEquals(TEXT.length() + 1, metrics.advanceCalls);
+    assertEquals(0, metrics.measureCalls);
+  }
+
+  @Test public void measureAllocationDoesNotScaleWithLength() {
+    final String longText = repeat(TEXT, 16);
+    final TabularLayout layout = new TabularLayout(WIDTH_CLASSES);
+    assertAllocationDoesNotScale(new Runnable() {
+      @Override public void run() {
+        layout.measure(metrics, TEXT, 0, TEXT.length());
+      }
+    }, new Runnable() {
+      @Override public void run() {
+        layout.measure(metrics, longText, 0, longText.length());
+      }
+    }, longText.length() - TEXT.length());
+  }
+
+  @Test public void drawAllocationDoesNotScaleWithLength() {
+    final String longText = repeat(TEXT, 16);
+    final TabularLayout shortLayout = new TabularLayout(WIDTH_CLASSES);
+    final TabularLayout longLayout = new TabularLayout(WIDTH_CLASSES);
+    assertAllocationDoesNotScale(new Runnable() {
+      @Override public void run() {
+        shortLayout.draw(metrics, sink, TEXT, 0, TEXT.length(), 0);
+      }
+    }, new Runnable() {
+      @Override public void run() {
+        longLayout.draw(metrics, sink, longText, 0, longText.length(), 0);
+      }
+    }, longText.length() - TEXT.length());
+  }
+}
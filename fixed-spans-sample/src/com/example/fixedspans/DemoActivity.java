@@ -19,17 +19,16 @@ package com.example.fixedspans;
 import android.app.ActionBar;
 import android.app.Activity;
 import android.content.Context;
-import android.graphics.Paint;
-import android.graphics.Typeface;
 import android.os.Bundle;
 import android.text.SpannableString;
-import android.text.TextPaint;
 import android.text.style.CharacterStyle;
-import android.text.style.TypefaceSpan;
 import android.widget.SeekBar;
 import android.widget.TextView;
+import com.chrisrenke.fixedspans.CachedTypefaceSpan;
 import com.chrisrenke.fixedspans.MonospaceSpan;
 import com.chrisrenke.fixedspans.ShadowedCrossFadeSpan;
+import com.chrisrenke.fixedspans.SpanAnimator;
+import com.chrisrenke.fixedspans.TableColumn;
 import com.chrisrenke.fixedspans.TabularSpan;
 
 import static android.graphics.Color.BLACK;
@@ -52,10 +51,11 @@ public class DemoActivity extends Activity {
     span(R.id.mono_2, new MonospaceSpan(true));
     span(R.id.mono_3, new MonospaceSpan(true));
 
+    TableColumn amounts = TableColumn.decimal();
     span(R.id.tabular_0, new MoonFlowerSpan(this));
-    span(R.id.tabular_0, new TabularSpan());
+    amounts.apply((TextView) findViewById(R.id.tabular_0));
     span(R.id.tabular_1, new MoonFlowerSpan(this));
-    span(R.id.tabular_1, new TabularSpan());
+    amounts.apply((TextView) findViewById(R.id.tabular_1));
     span(R.id.tabular_2, new MoonFlowerSpan(this));
     span(R.id.tabular_2, new TabularSpan(" ()-", "0123456789"));
     span(R.id.tabular_3, new MoonFlowerSpan(this));
@@ -72,13 +72,12 @@ public class DemoActivity extends Activity {
     SeekBar seek = (SeekBar) findViewById(R.id.seek_bar);
     final ShadowedCrossFadeSpan span =
         new ShadowedCrossFadeSpan(WHITE, BLACK, BLACK, 200, 0, 0, 2, 6);
-    final TextView fadetext = (TextView) findViewById(R.id.fade_0);
+    span(R.id.fade_0, span);
+    final SpanAnimator animator = new SpanAnimator(span);
+    animator.addView(findViewById(R.id.fade_0));
     seek.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
       @Override public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
-        span.setParameter((float) progress / (float) seekBar.getMax());
-        SpannableString spannableString = new SpannableString(fadetext.getText().toString());
-        spannableString.setSpan(span, 0, spannableString.length(), 0);
-        fadetext.setText(spannableString);
+        animator.setParameter((float) progress / (float) seekBar.getMax());
       }
 
       @Override public void onStartTrackingTouch(SeekBar seekBar) {
@@ -87,7 +86,6 @@ public class DemoActivity extends Activity {
       @Override public void onStopTrackingTouch(SeekBar seekBar) {
       }
     });
-    span(R.id.fade_0, span);
   }
 
   private void span(int id, CharacterStyle span) {
@@ -97,26 +95,12 @@ public class DemoActivity extends Activity {
     view.setText(spannableString);
   }
 
-  public class MoonFlowerSpan extends TypefaceSpan {
-
-    private static final String FONT_FAMILY = "sans-serif";
-    private final Context context;
+  /** The sample font, parsed once by the registry and shared by every span. */
+  public static class MoonFlowerSpan extends CachedTypefaceSpan {
+    private static final String ASSET_PATH = "fonts/moonflowerfont.ttf";
 
     MoonFlowerSpan(Context context) {
-      super(FONT_FAMILY);
-      this.context = context;
-    }
-
-    @Override public void updateDrawState(TextPaint p) {
-      applyCustomTypeface(p);
-    }
-
-    @Override public void updateMeasureState(TextPaint p) {
-      applyCustomTypeface(p);
-    }
-
-    private void applyCustomTypeface(Paint paint) {
-      paint.setTypeface(Typeface.createFromAsset(context.getAssets(), "fonts/moonflowerfont.ttf"));
+      super(context, ASSET_PATH);
     }
   }
 }
@@ -0,0 +1,26 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+/**
+ * A span whose appearance follows a single parameter, from 0 to 1. Implementations must only
+ * change how text is drawn, never how it is measured, so that {@link SpanAnimator} can get away
+ * with a redraw.
+ */
+public interface AnimatableSpan {
+  void setParameter(float t);
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.text.Spanned;
+
+/**
+ * {@link GlyphSink} that blits characters from a {@link GlyphAtlas} and draws any others as text.
+ * Spans keep one instance, point it at the canvas and paint of every draw and {@link #release} it
+ * afterwards, so that the atlas cache alone decides how long a bitmap lives.
+ *
+ * <p>The atlas holds the characters the sink was pointed at so far, up to
+ * {@link #MAX_CHARACTERS}; whenever a new one turns up, the next atlas is rasterized with it.
+ * Text from a small set of characters, such as a clock, settles on one atlas after a few draws.
+ *
+ * <p>Cells are blitted with a plain paint in the text's color, from the left. Text with a shadow,
+ * with underline or strike-through, or with a paint not aligned left is drawn as text instead, as
+ * cells cannot reproduce those. Only shadows set by a {@link ShadowedCrossFadeSpan} can be
+ * detected; {@link Paint} has no way to ask for others before Android 10.
+ */
+final class AtlasGlyphSink implements GlyphSink {
+  private static final int DECORATION_FLAGS =
+      Paint.UNDERLINE_TEXT_FLAG | Paint.STRIKE_THRU_TEXT_FLAG;
+
+  /** Most distinct characters an atlas holds; any others are drawn as text. */
+  static final int MAX_CHARACTERS = 96;
+
+  private final Paint bitmapPaint = new Paint();
+  private final boolean[] asciiSeen = new boolean[128];
+  // Kept sorted, so that spans drawing the same characters share an atlas.
+  private final StringBuilder seen = new StringBuilder();
+  private String characters = "";
+
+  private GlyphAtlas atlas;
+  private Canvas canvas;
+  private Paint paint;
+  private float y;
+
+  /**
+   * Points the sink at the atlas for {@code paint}, whose metrics key is {@code metricsKey}, to
+   * draw the given range of {@code text}. Returns false if there is no atlas for it or the text
+   * cannot be blitted, in which case the sink must not be used.
+   */
+  boolean set(Canvas canvas, Paint paint, float y, Object metricsKey, CharSequence text, int start,
+      int end) {
+    if ((paint.getFlags() & DECORATION_FLAGS) != 0 || paint.getTextAlign() != Paint.Align.LEFT
+        || hasShadow(text, start, end)) {
+      return false;
+    }
+    addCharacters(text, start, end);
+    atlas = GlyphAtlas.forPaint(paint, metricsKey, characters);
+    if (atlas == null) return false;
+    bitmapPaint.setColor(paint.getColor());
+    bitmapPaint.setShader(paint.getShader());
+    bitmapPaint.setColorFilter(paint.getColorFilter());
+    this.canvas = canvas;
+    this.paint = paint;
+    this.y = y;
+    return true;
+  }
+
+  /** Lets go of the atlas and paint state of the last draw. */
+  void release() {
+    atlas = null;
+    canvas = null;
+    paint = null;
+    bitmapPaint.setShader(null);
+    bitmapPaint.setColorFilter(null);
+  }
+
+  @Override public void drawText(CharSequence text, int start, int end, float x) {
+    if (end - start == 1 && atlas.draw(canvas, text.charAt(start), x, y, bitmapPaint)) return;
+    canvas.drawText(text, start, end, x, y, paint);
+  }
+
+  @Override public void drawPositioned(CharSequence text, int start, int end,
+      float[] xPositions) {
+    for (int i = start; i < end; i++) {
+      float x = xPositions[i - start];
+      if (atlas.draw(canvas, text.charAt(i), x, y, bitmapPaint)) continue;
+      canvas.drawText(text, i, i + 1, x, y, paint);
+    }
+  }
+
+  /** Adds the characters of the range not in the atlas yet, allocating only if there are any. */
+  private void addCharacters(CharSequence text, int start, int end) {
+    boolean added = false;
+    for (int i = start; i < end && seen.length() < MAX_CHARACTERS; i++) {
+      char c = text.charAt(i);
+      if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) continue;
+      if (c < asciiSeen.length) {
+        if (asciiSeen[c]) continue;
+        asciiSeen[c] = true;
+      }
+      int index = 0;
+      while (index < seen.length() && seen.charAt(index) < c) index++;
+      if (index < seen.length() && seen.charAt(index) == c) continue;
+      seen.insert(index, c);
+      added = true;
+    }
+    if (added) characters = seen.toString();
+  }
+
+  /** Spanned text without such spans returns a shared empty array, so this does not allocate. */
+  private static boolean hasShadow(CharSequence text, int start, int end) {
+    return text instanceof Spanned
+        && ((Spanned) text).getSpans(start, end, ShadowedCrossFadeSpan.class).length > 0;
+  }
+}
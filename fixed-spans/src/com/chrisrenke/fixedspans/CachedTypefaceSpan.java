@@ -0,0 +1,61 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.content.Context;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.text.TextPaint;
+import android.text.style.MetricAffectingSpan;
+
+/**
+ * Applies a typeface that was loaded once, typically through {@link TypefaceRegistry}. Unlike
+ * creating the typeface in {@code updateDrawState}, measuring and drawing never touch the font
+ * file. Styles the typeface lacks are faked, as {@link android.text.style.TypefaceSpan} does.
+ */
+public class CachedTypefaceSpan extends MetricAffectingSpan {
+  private final Typeface typeface;
+
+  public CachedTypefaceSpan(Typeface typeface) {
+    this.typeface = typeface;
+  }
+
+  public CachedTypefaceSpan(Context context, String assetPath) {
+    this(TypefaceRegistry.get(context, assetPath));
+  }
+
+  public Typeface getTypeface() {
+    return typeface;
+  }
+
+  @Override public void updateDrawState(TextPaint paint) {
+    apply(paint);
+  }
+
+  @Override public void updateMeasureState(TextPaint paint) {
+    apply(paint);
+  }
+
+  private void apply(Paint paint) {
+    Typeface old = paint.getTypeface();
+    int oldStyle = old == null ? Typeface.NORMAL : old.getStyle();
+    int fake = oldStyle & ~typeface.getStyle();
+    if ((fake & Typeface.BOLD) != 0) paint.setFakeBoldText(true);
+    if ((fake & Typeface.ITALIC) != 0) paint.setTextSkewX(-0.25f);
+    paint.setTypeface(typeface);
+  }
+}
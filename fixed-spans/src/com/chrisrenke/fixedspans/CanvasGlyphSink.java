@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Build;
+import android.text.TextUtils;
+
+/**
+ * {@link GlyphSink} that draws onto a {@link Canvas} at a fixed baseline. Spans keep one instance
+ * and point it at the canvas and paint of every draw, so drawing does not allocate.
+ */
+final class CanvasGlyphSink implements GlyphSink {
+  private Canvas canvas;
+  private Paint paint;
+  private float y;
+
+  private char[] glyphs = new char[0];
+  private float[] positions = new float[0];
+
+  CanvasGlyphSink set(Canvas canvas, Paint paint, float y) {
+    this.canvas = canvas;
+    this.paint = paint;
+    this.y = y;
+    return this;
+  }
+
+  @Override public void drawText(CharSequence text, int start, int end, float x) {
+    canvas.drawText(text, start, end, x, y, paint);
+  }
+
+  /**
+   * Emits the whole run with a single {@code drawPosText} call where that gives the same result
+   * as drawing every char on its own, which it falls back to otherwise.
+   */
+  @Override public void drawPositioned(CharSequence text, int start, int end,
+      float[] xPositions) {
+    int count = end - start;
+    if (glyphs.length < count) {
+      glyphs = new char[count];
+      positions = new float[count * 2];
+    }
+    TextUtils.getChars(text, start, end, glyphs, 0);
+
+    // positions holds (x, y) pairs as drawPosText expects.
+    boolean positionable = canDrawPositioned(canvas);
+    for (int i = 0; i < count; i++) {
+      positions[i * 2] = xPositions[i];
+      positions[i * 2 + 1] = y;
+      positionable &= isPositionable(glyphs[i]);
+    }
+
+    if (positionable) {
+      canvas.drawPosText(glyphs, 0, count, positions, paint);
+    } else {
+      for (int i = 0; i < count; i++) {
+        canvas.drawText(glyphs, i, 1, xPositions[i], y, paint);
+      }
+    }
+  }
+
+  /**
+   * Positioned text skips shaping, so it only gives the same result as drawing each character on
+   * its own for characters that render as exactly one standalone, left-to-right glyph.
+   */
+  private static boolean isPositionable(char c) {
+    if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) return false;
+    switch (Character.getType(c)) {
+      case Character.NON_SPACING_MARK:
+      case Character.ENCLOSING_MARK:
+      case Character.COMBINING_SPACING_MARK:
+      case Character.FORMAT:
+        return false;
+    }
+    byte direction = Character.getDirectionality(c);
+    return direction != Character.DIRECTIONALITY_RIGHT_TO_LEFT
+        && direction != Character.DIRECTIONALITY_RIGHT_TO_LEFT_ARABIC;
+  }
+
+  /** Hardware accelerated canvases only support {@code drawPosText} from Jelly Bean on. */
+  private static boolean canDrawPositioned(Canvas canvas) {
+    int sdk = Build.VERSION.SDK_INT;
+    return sdk >= Build.VERSION_CODES.JELLY_BEAN
+        || sdk < Build.VERSION_CODES.HONEYCOMB
+        || !canvas.isHardwareAccelerated();
+  }
+}
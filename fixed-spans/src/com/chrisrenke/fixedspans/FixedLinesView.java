@@ -0,0 +1,286 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.text.TextPaint;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.widget.OverScroller;
+
+import static com.chrisrenke.fixedspans.MonospaceLayout.REFERENCE_CHARACTERS;
+
+/**
+ * Scrolling view for very long monospace or tabular text, such as logs or live tables. Text is
+ * kept as a {@link LineIndex} and every line is laid out by a single {@link LineLayout}. Only the
+ * lines on screen plus a few either side are ever measured, and their state is recycled as they
+ * scroll out. Appending lines is amortized constant time and, while scrolled to the end, keeps
+ * the newest line in view. Must be used on the main thread.
+ */
+public class FixedLinesView extends View {
+  /** Lines measured ahead of the visible window, on either side. */
+  private static final int PREFETCH_LINES = 8;
+
+  private final TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+  private final Paint.FontMetricsInt fontMetrics = new Paint.FontMetricsInt();
+  private final PaintGlyphMetrics metrics = new PaintGlyphMetrics();
+  private final CanvasGlyphSink sink = new CanvasGlyphSink();
+  private final LineIndex lines = new LineIndex();
+  private final OverScroller scroller;
+  private final int touchSlop;
+  private final int minFlingVelocity;
+  private final int maxFlingVelocity;
+
+  private LineLayout layout = new MonospaceLayout(REFERENCE_CHARACTERS);
+  private boolean alignRight;
+  private boolean followTail = true;
+  private boolean heightExact;
+  private int rowHeight;
+  /** Per-line state for the lines around the window; line {@code n} lives in slot n % length. */
+  private LineState[] window = new LineState[0];
+
+  private VelocityTracker velocityTracker;
+  private float lastTouchY;
+  private boolean dragging;
+
+  public FixedLinesView(Context context) {
+    this(context, null);
+  }
+
+  public FixedLinesView(Context context, AttributeSet attrs) {
+    this(context, attrs, 0);
+  }
+
+  public FixedLinesView(Context context, AttributeSet attrs, int defStyle) {
+    super(context, attrs, defStyle);
+    scroller = new OverScroller(context);
+    ViewConfiguration configuration = ViewConfiguration.get(context);
+    touchSlop = configuration.getScaledTouchSlop();
+    minFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+    maxFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+    paint.setTextSize(14 * context.getResources().getDisplayMetrics().scaledDensity);
+    setVerticalScrollBarEnabled(true);
+    setWillNotDraw(false);
+    paintChanged();
+  }
+
+  /** Lays every line out with {@code layout}, e.g. a {@link TabularLayout} for tables. */
+  public void setLineLayout(LineLayout layout) {
+    this.layout = layout;
+    clearWindow();
+    invalidate();
+  }
+
+  /** Draws lines flush against the right padding instead of the left. */
+  public void setAlignRight(boolean alignRight) {
+    this.alignRight = alignRight;
+    invalidate();
+  }
+
+  /** Whether appending while scrolled to the end keeps the newest line in view. Default true. */
+  public void setFollowTail(boolean followTail) {
+    this.followTail = followTail;
+  }
+
+  public TextPaint getPaint() {
+    return paint;
+  }
+
+  /** Sets the text size in pixels. */
+  public void setTextSize(float size) {
+    paint.setTextSize(size);
+    paintChanged();
+  }
+
+  public void setTypeface(Typeface typeface) {
+    paint.setTypeface(typeface);
+    paintChanged();
+  }
+
+  public void setTextColor(int color) {
+    paint.setColor(color);
+    invalidate();
+  }
+
+  public int getLineCount() {
+    return lines.lineCount();
+  }
+
+  /**
+   * Appends {@code text}, ending a line at every {@code '\n'}. Text after the last one is
+   * continued by the next append, as when a log arrives in pieces.
+   */
+  public void append(CharSequence text) {
+    boolean atTail = getScrollY() >= maxScrollY();
+    // The open last line may grow, so its measured width no longer holds.
+    if (lines.isLastLineOpen()) forgetLine(lines.lineCount() - 1);
+    lines.append(text);
+    if (!heightExact) requestLayout();
+    if (atTail && followTail && scroller.isFinished()) scrollToClamped(maxScrollY());
+    invalidate();
+  }
+
+  public void clear() {
+    lines.clear();
+    clearWindow();
+    scroller.forceFinished(true);
+    if (!heightExact) requestLayout();
+    scrollTo(0, 0);
+    invalidate();
+  }
+
+  /** Scrolls so that {@code line} is at the top, or as close as the end of the text allows. */
+  public void scrollToLine(int line) {
+    scroller.forceFinished(true);
+    scrollToClamped(line * rowHeight);
+  }
+
+  @Override protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+    heightExact = MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.EXACTLY;
+    setMeasuredDimension(getDefaultSize(0, widthMeasureSpec),
+        resolveSize(contentHeight(), heightMeasureSpec));
+  }
+
+  @Override protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+    super.onSizeChanged(w, h, oldw, oldh);
+    scrollToClamped(getScrollY());
+  }
+
+  @Override protected void onDraw(Canvas canvas) {
+    int lineCount = lines.lineCount();
+    if (lineCount == 0) return;
+    int top = getScrollY() - getPaddingTop();
+    int first = Math.max(0, top / rowHeight);
+    int last = Math.min(lineCount - 1, (top + getHeight()) / rowHeight);
+    ensureWindow(last - first + 1 + 2 * PREFETCH_LINES);
+
+    metrics.set(paint);
+    int prefetchEnd = Math.min(lineCount - 1, last + PREFETCH_LINES);
+    for (int line = Math.max(0, first - PREFETCH_LINES); line <= prefetchEnd; line++) {
+      LineState state = stateFor(line);
+      if (line < first || line > last) continue;
+      float x = alignRight ? getWidth() - getPaddingRight() - state.width : getPaddingLeft();
+      sink.set(canvas, paint, getPaddingTop() + line * rowHeight - fontMetrics.ascent);
+      layout.draw(metrics, sink, lines.chars(), lines.lineStart(line), lines.lineEnd(line), x);
+    }
+  }
+
+  @Override public boolean onTouchEvent(MotionEvent event) {
+    if (velocityTracker == null) velocityTracker = VelocityTracker.obtain();
+    velocityTracker.addMovement(event);
+
+    int action = event.getActionMasked();
+    if (action == MotionEvent.ACTION_DOWN) {
+      scroller.forceFinished(true);
+      lastTouchY = event.getY();
+      dragging = false;
+    } else if (action == MotionEvent.ACTION_MOVE) {
+      float dy = lastTouchY - event.getY();
+      if (!dragging && Math.abs(dy) > touchSlop) dragging = true;
+      if (dragging) {
+        scrollToClamped(getScrollY() + (int) dy);
+        lastTouchY = event.getY();
+      }
+    } else if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+      if (dragging && action == MotionEvent.ACTION_UP) {
+        velocityTracker.computeCurrentVelocity(1000, maxFlingVelocity);
+        int velocity = (int) velocityTracker.getYVelocity();
+        if (Math.abs(velocity) > minFlingVelocity) {
+          scroller.fling(0, getScrollY(), 0, -velocity, 0, 0, 0, maxScrollY());
+          invalidate();
+        }
+      }
+      dragging = false;
+      velocityTracker.recycle();
+      velocityTracker = null;
+    }
+    return true;
+  }
+
+  @Override public void computeScroll() {
+    if (scroller.computeScrollOffset()) {
+      scrollTo(0, scroller.getCurrY());
+      invalidate();
+    }
+  }
+
+  @Override protected int computeVerticalScrollRange() {
+    return contentHeight();
+  }
+
+  private LineState stateFor(int line) {
+    LineState state = window[line % window.length];
+    if (state.line != line) {
+      state.line = line;
+      state.width = layout.measure(metrics, lines.chars(), lines.lineStart(line),
+          lines.lineEnd(line));
+    }
+    return state;
+  }
+
+  private void ensureWindow(int capacity) {
+    if (window.length >= capacity) return;
+    window = new LineState[capacity];
+    for (int i = 0; i < capacity; i++) {
+      window[i] = new LineState();
+    }
+  }
+
+  private void forgetLine(int line) {
+    if (window.length == 0) return;
+    LineState state = window[line % window.length];
+    if (state.line == line) state.line = -1;
+  }
+
+  private void clearWindow() {
+    for (LineState state : window) {
+      state.line = -1;
+    }
+  }
+
+  private void paintChanged() {
+    rowHeight = Math.max(1, paint.getFontMetricsInt(fontMetrics));
+    clearWindow();
+    if (!heightExact) requestLayout();
+    invalidate();
+  }
+
+  private int contentHeight() {
+    return lines.lineCount() * rowHeight + getPaddingTop() + getPaddingBottom();
+  }
+
+  private int maxScrollY() {
+    return Math.max(0, contentHeight() - getHeight());
+  }
+
+  private void scrollToClamped(int y) {
+    scrollTo(0, Math.max(0, Math.min(y, maxScrollY())));
+    awakenScrollBars();
+  }
+
+  /** Measured width of one line, kept while the line stays near the window. */
+  private static final class LineState {
+    int line = -1;
+    int width;
+  }
+}
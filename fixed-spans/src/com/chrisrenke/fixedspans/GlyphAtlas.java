@@ -0,0 +1,205 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A fixed set of characters rasterized once for one paint configuration into an {@code ALPHA_8}
+ * bitmap, which takes the color of whatever paint it is drawn with. Atlases are cached by the
+ * same key as {@link GlyphMetricsCache} plus the paint's stroke, so any paint change that affects
+ * glyphs picks a new atlas. The least recently used atlases are dropped beyond
+ * {@link #MAX_CACHE_BYTES} or {@link #MAX_ENTRIES}, and sets that would need more than
+ * {@link #MAX_ATLAS_BYTES} are never rasterized.
+ */
+final class GlyphAtlas {
+  static final int MAX_ATLAS_BYTES = 256 * 1024;
+  static final int MAX_CACHE_BYTES = 1024 * 1024;
+  static final int MAX_ENTRIES = 64;
+  /**
+   * What a {@link #TOO_LARGE} entry counts against {@link #MAX_CACHE_BYTES}. It holds no bitmap,
+   * but its key keeps a {@link GlyphMetricsCache} entry alive.
+   */
+  private static final int PLACEHOLDER_BYTES = 4 * 1024;
+
+  private static final int COLUMNS = 16;
+  /** Room around each glyph for antialiasing and overhang. */
+  private static final int PADDING = 2;
+  /** Cached in place of an atlas that would be too large, so it is not attempted again. */
+  private static final GlyphAtlas TOO_LARGE = new GlyphAtlas("", null, 0, 0, 0);
+
+  private static final Key PROBE = new Key();
+  private static final Map<Key, GlyphAtlas> ENTRIES =
+      new LinkedHashMap<Key, GlyphAtlas>(16, 0.75f, true);
+  private static int cachedBytes;
+
+  /**
+   * Returns the atlas of {@code characters} for {@code paint}, whose metrics key is
+   * {@code metricsKey}, or null if it would be too large.
+   */
+  static synchronized GlyphAtlas forPaint(Paint paint, Object metricsKey, String characters) {
+    PROBE.set(paint, metricsKey, characters);
+    GlyphAtlas atlas = ENTRIES.get(PROBE);
+    if (atlas == null) {
+      atlas = rasterize(paint, characters);
+      ENTRIES.put(PROBE.copy(), atlas);
+      cachedBytes += atlas.bytes;
+      trim();
+    }
+    PROBE.metricsKey = null;
+    return atlas != TOO_LARGE ? atlas : null;
+  }
+
+  static synchronized void clear() {
+    ENTRIES.clear();
+    cachedBytes = 0;
+  }
+
+  private static void trim() {
+    for (Iterator<GlyphAtlas> atlases = ENTRIES.values().iterator();
+        (cachedBytes > MAX_CACHE_BYTES || ENTRIES.size() > MAX_ENTRIES) && atlases.hasNext(); ) {
+      cachedBytes -= atlases.next().bytes;
+      atlases.remove();
+    }
+  }
+
+  private static GlyphAtlas rasterize(Paint paint, String characters) {
+    Paint.FontMetricsInt fm = paint.getFontMetricsInt();
+    float maxAdvance = GlyphMetricsCache.forPaint(paint).maxAdvance(paint, characters);
+    int cellWidth = (int) Math.ceil(maxAdvance) + 2 * PADDING;
+    int cellHeight = fm.bottom - fm.top + 2 * PADDING;
+    int count = characters.length();
+    int width = Math.min(count, COLUMNS) * cellWidth;
+    int height = (count + COLUMNS - 1) / COLUMNS * cellHeight;
+    if (count == 0 || (long) width * height > MAX_ATLAS_BYTES) return TOO_LARGE;
+
+    Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+    Canvas canvas = new Canvas(bitmap);
+    Paint raster = new Paint(paint);
+    raster.clearShadowLayer();
+    raster.setShader(null);
+    raster.setColorFilter(null);
+    raster.setColor(0xff000000);
+    for (int i = 0; i < count; i++) {
+      canvas.drawText(characters, i, i + 1, i % COLUMNS * cellWidth + PADDING,
+          i / COLUMNS * cellHeight + PADDING - fm.top, raster);
+    }
+    return new GlyphAtlas(characters, bitmap, cellWidth, cellHeight, fm.top - PADDING);
+  }
+
+  private final String characters;
+  private final byte[] asciiIndex = new byte[128];
+  private final Bitmap bitmap;
+  private final int cellWidth;
+  private final int cellHeight;
+  /** Top of a cell relative to the baseline. */
+  private final int cellTop;
+  private final int bytes;
+
+  // Reused between draws; atlases are only drawn on the main thread.
+  private final Rect source = new Rect();
+  private final Rect destination = new Rect();
+
+  private GlyphAtlas(String characters, Bitmap bitmap, int cellWidth, int cellHeight,
+      int cellTop) {
+    this.characters = characters;
+    this.bitmap = bitmap;
+    this.cellWidth = cellWidth;
+    this.cellHeight = cellHeight;
+    this.cellTop = cellTop;
+    this.bytes = bitmap != null ? bitmap.getRowBytes() * bitmap.getHeight() : PLACEHOLDER_BYTES;
+
+    Arrays.fill(asciiIndex, (byte) -1);
+    for (int i = Math.min(characters.length(), Byte.MAX_VALUE) - 1; i >= 0; i--) {
+      char c = characters.charAt(i);
+      if (c < asciiIndex.length) asciiIndex[c] = (byte) i;
+    }
+  }
+
+  /**
+   * Blits {@code c} with its origin at {@code (x, y)}, snapped to whole pixels, returning false
+   * without drawing if the atlas does not hold it.
+   */
+  boolean draw(Canvas canvas, char c, float x, float y, Paint paint) {
+    int index = c < asciiIndex.length ? asciiIndex[c] : -1;
+    if (index < 0) {
+      index = characters.indexOf(c);
+      if (index < 0 || Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) return false;
+    }
+    int sourceLeft = index % COLUMNS * cellWidth;
+    int sourceTop = index / COLUMNS * cellHeight;
+    source.set(sourceLeft, sourceTop, sourceLeft + cellWidth, sourceTop + cellHeight);
+    int left = Math.round(x) - PADDING;
+    int top = Math.round(y) + cellTop;
+    destination.set(left, top, left + cellWidth, top + cellHeight);
+    canvas.drawBitmap(bitmap, source, destination, paint);
+    return true;
+  }
+
+  private static final class Key {
+    Object metricsKey;
+    String characters;
+    // Glyph metrics ignore the stroke, but a stroked atlas must not be drawn for filled text.
+    Paint.Style style;
+    float strokeWidth;
+    Paint.Join strokeJoin;
+
+    void set(Paint paint, Object metricsKey, String characters) {
+      this.metricsKey = metricsKey;
+      this.characters = characters;
+      style = paint.getStyle();
+      strokeWidth = paint.getStrokeWidth();
+      strokeJoin = paint.getStrokeJoin();
+    }
+
+    Key copy() {
+      Key key = new Key();
+      key.metricsKey = metricsKey;
+      key.characters = characters;
+      key.style = style;
+      key.strokeWidth = strokeWidth;
+      key.strokeJoin = strokeJoin;
+      return key;
+    }
+
+    @Override public boolean equals(Object o) {
+      if (!(o instanceof Key)) return false;
+      Key other = (Key) o;
+      return metricsKey == other.metricsKey //
+          && characters.equals(other.characters) //
+          && style == other.style //
+          && Float.floatToIntBits(strokeWidth) == Float.floatToIntBits(other.strokeWidth) //
+          && strokeJoin == other.strokeJoin;
+    }
+
+    @Override public int hashCode() {
+      int result = System.identityHashCode(metricsKey);
+      result = 31 * result + characters.hashCode();
+      result = 31 * result + (style != null ? style.hashCode() : 0);
+      result = 31 * result + Float.floatToIntBits(strokeWidth);
+      result = 31 * result + (strokeJoin != null ? strokeJoin.hashCode() : 0);
+      return result;
+    }
+  }
+}
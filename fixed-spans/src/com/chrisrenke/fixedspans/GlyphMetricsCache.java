@@ -0,0 +1,218 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Build;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide cache of character advances, keyed by the parts of a {@link Paint} that affect
+ * text width (typeface, size, scale, skew, letter spacing and flags). Typefaces are held weakly
+ * and the least recently used paint configurations are evicted once {@link #MAX_ENTRIES} is hit.
+ */
+public final class GlyphMetricsCache {
+
+  static final int MAX_ENTRIES = 32;
+
+  private static final Key PROBE = new Key();
+  private static final Map<Key, Metrics> ENTRIES =
+      new LinkedHashMap<Key, Metrics>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<Key, Metrics> eldest) {
+          return size() > MAX_ENTRIES;
+        }
+      };
+
+  private GlyphMetricsCache() {
+  }
+
+  /** Returns the cached metrics for the current state of {@code paint}, creating them if needed. */
+  static synchronized Metrics forPaint(Paint paint) {
+    PROBE.set(paint);
+    Metrics metrics = ENTRIES.get(PROBE);
+    if (metrics == null) {
+      purgeClearedTypefaces();
+      metrics = new Metrics();
+      ENTRIES.put(PROBE.copy(), metrics);
+    }
+    PROBE.typeface = null;
+    return metrics;
+  }
+
+  /** Drops every cached measurement and glyph atlas, e.g. in response to a low memory callback. */
+  public static void clear() {
+    synchronized (GlyphMetricsCache.class) {
+      ENTRIES.clear();
+    }
+    GlyphAtlas.clear();
+  }
+
+  private static void purgeClearedTypefaces() {
+    for (Iterator<Key> keys = ENTRIES.keySet().iterator(); keys.hasNext(); ) {
+      if (keys.next().isCleared()) keys.remove();
+    }
+  }
+
+  /** {@code Paint#getLetterSpacing()} only exists from Lollipop on. */
+  static float getLetterSpacing(Paint paint) {
+    return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP ? paint.getLetterSpacing() : 0;
+  }
+
+  /** Measurements for a single paint configuration. The paint passed in must match its key. */
+  static final class Metrics {
+    private static final int PAGE_SIZE = 256;
+
+    private final float[][] pages = new float[PAGE_SIZE][];
+    private final Map<String, Float> referenceWidths = new HashMap<String, Float>();
+
+    /**
+     * Returns the advance of the code point at {@code index} of {@code text}. Only BMP characters
+     * are cached; surrogate pairs are rare enough to be measured each time.
+     */
+    synchronized float advance(Paint paint, CharSequence text, int index) {
+      return advance(paint, text, index, true);
+    }
+
+    /** Like the above, but reports the cache lookup only if {@code reportLookup}. */
+    private float advance(Paint paint, CharSequence text, int index, boolean reportLookup) {
+      SpanMetricsListener listener = SpanMetrics.listener;
+      if (CodePoints.charCount(text, index) == 2) {
+        if (listener != null) listener.onMeasureText();
+        return paint.measureText(text, index, index + 2);
+      }
+      char character = text.charAt(index);
+      float[] page = pages[character / PAGE_SIZE];
+      if (page == null) {
+        page = new float[PAGE_SIZE];
+        Arrays.fill(page, Float.NaN);
+        pages[character / PAGE_SIZE] = page;
+      }
+      float width = page[character % PAGE_SIZE];
+      if (Float.isNaN(width)) {
+        if (listener != null) {
+          if (reportLookup) listener.onCacheMiss();
+          listener.onMeasureText();
+        }
+        width = paint.measureText(text, index, index + 1);
+        page[character % PAGE_SIZE] = width;
+      } else if (listener != null && reportLookup) {
+        listener.onCacheHit();
+      }
+      return width;
+    }
+
+    /** Returns the widest advance of any character in {@code text} between the given indices. */
+    synchronized float maxAdvance(Paint paint, CharSequence text, int start, int end) {
+      return maxAdvance(paint, text, start, end, true);
+    }
+
+    /** Returns the widest advance of any character in the fixed {@code referenceSet}. */
+    synchronized float maxAdvance(Paint paint, String referenceSet) {
+      SpanMetricsListener listener = SpanMetrics.listener;
+      Float width = referenceWidths.get(referenceSet);
+      if (width == null) {
+        // One lookup of the set, however many of its characters had to be measured.
+        if (listener != null) listener.onCacheMiss();
+        width = maxAdvance(paint, referenceSet, 0, referenceSet.length(), false);
+        referenceWidths.put(referenceSet, width);
+      } else if (listener != null) {
+        listener.onCacheHit();
+      }
+      return width;
+    }
+
+    private float maxAdvance(Paint paint, CharSequence text, int start, int end,
+        boolean reportLookups) {
+      float maxWidth = 0;
+      for (int i = start; i < end; i += CodePoints.charCount(text, i)) {
+        maxWidth = Math.max(advance(paint, text, i, reportLookups), maxWidth);
+      }
+      return maxWidth;
+    }
+  }
+
+  private static final class Key {
+    /** Only set on the shared probe key; stored keys reference their typeface weakly. */
+    Typeface typeface;
+    WeakReference<Typeface> typefaceRef;
+    int typefaceHash;
+    float textSize;
+    float textScaleX;
+    float textSkewX;
+    float letterSpacing;
+    int flags;
+
+    void set(Paint paint) {
+      typeface = paint.getTypeface();
+      typefaceHash = System.identityHashCode(typeface);
+      textSize = paint.getTextSize();
+      textScaleX = paint.getTextScaleX();
+      textSkewX = paint.getTextSkewX();
+      letterSpacing = getLetterSpacing(paint);
+      flags = paint.getFlags();
+    }
+
+    Key copy() {
+      Key key = new Key();
+      key.typefaceRef = typeface == null ? null : new WeakReference<Typeface>(typeface);
+      key.typefaceHash = typefaceHash;
+      key.textSize = textSize;
+      key.textScaleX = textScaleX;
+      key.textSkewX = textSkewX;
+      key.letterSpacing = letterSpacing;
+      key.flags = flags;
+      return key;
+    }
+
+    Typeface typeface() {
+      return typefaceRef != null ? typefaceRef.get() : typeface;
+    }
+
+    boolean isCleared() {
+      return typefaceRef != null && typefaceRef.get() == null;
+    }
+
+    @Override public boolean equals(Object o) {
+      if (!(o instanceof Key)) return false;
+      Key other = (Key) o;
+      return typefaceHash == other.typefaceHash //
+          && typeface() == other.typeface() //
+          && !isCleared() && !other.isCleared() //
+          && Float.floatToIntBits(textSize) == Float.floatToIntBits(other.textSize) //
+          && Float.floatToIntBits(textScaleX) == Float.floatToIntBits(other.textScaleX) //
+          && Float.floatToIntBits(textSkewX) == Float.floatToIntBits(other.textSkewX) //
+          && Float.floatToIntBits(letterSpacing) == Float.floatToIntBits(other.letterSpacing) //
+          && flags == other.flags;
+    }
+
+    @Override public int hashCode() {
+      int result = typefaceHash;
+      result = 31 * result + Float.floatToIntBits(textSize);
+      result = 31 * result + Float.floatToIntBits(textScaleX);
+      result = 31 * result + Float.floatToIntBits(textSkewX);
+      result = 31 * result + Float.floatToIntBits(letterSpacing);
+      result = 31 * result + flags;
+      return result;
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.chrisrenke.fixedspans.JustifySpan.Mode;
+
+/**
+ * The last few justified versions of one source text, by width and settings, so that going back
+ * to a width seen before, e.g. rotating back, swaps the old result in instead of justifying again.
+ * Its spans keep their plans, so the swapped in text draws without measuring too. Main thread
+ * only.
+ */
+final class JustifyMemo {
+  static final int MAX_ENTRIES = 4;
+
+  private final Key probe = new Key();
+  private final Map<Key, CharSequence> entries =
+      new LinkedHashMap<Key, CharSequence>(MAX_ENTRIES, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<Key, CharSequence> eldest) {
+          return size() > MAX_ENTRIES;
+        }
+      };
+  // The source is told apart by its length and hash, so that no copy of it is kept.
+  private int sourceLength = -1;
+  private long sourceHash;
+
+  /**
+   * Returns the source of {@code sourceLength} chars hashing to {@code sourceHash} as justified
+   * before with the given inputs, or null. {@code metricsKey} identifies the paint it was
+   * measured with.
+   */
+  CharSequence get(int sourceLength, long sourceHash, Object metricsKey, int width,
+      boolean justifyLastLine, float whitespaceWeight, Mode mode) {
+    if (sourceLength != this.sourceLength || sourceHash != this.sourceHash) return null;
+    probe.set(metricsKey, width, justifyLastLine, whitespaceWeight, mode);
+    CharSequence justified = entries.get(probe);
+    probe.metricsKey = null;
+    return justified;
+  }
+
+  /** Remembers {@code justified}, forgetting every result for another source. */
+  void put(int sourceLength, long sourceHash, Object metricsKey, int width,
+      boolean justifyLastLine, float whitespaceWeight, Mode mode, CharSequence justified) {
+    if (sourceLength != this.sourceLength || sourceHash != this.sourceHash) {
+      entries.clear();
+      this.sourceLength = sourceLength;
+      this.sourceHash = sourceHash;
+    }
+    Key key = new Key();
+    key.set(metricsKey, width, justifyLastLine, whitespaceWeight, mode);
+    entries.put(key, justified);
+  }
+
+  void clear() {
+    entries.clear();
+    sourceLength = -1;
+  }
+
+  private static final class Key {
+    Object metricsKey;
+    int width;
+    boolean justifyLastLine;
+    float whitespaceWeight;
+    Mode mode;
+
+    void set(Object metricsKey, int width, boolean justifyLastLine, float whitespaceWeight,
+        Mode mode) {
+      this.metricsKey = metricsKey;
+      this.width = width;
+      this.justifyLastLine = justifyLastLine;
+      this.whitespaceWeight = whitespaceWeight;
+      this.mode = mode;
+    }
+
+    @Override public boolean equals(Object o) {
+      if (!(o instanceof Key)) return false;
+      Key other = (Key) o;
+      return metricsKey == other.metricsKey //
+          && width == other.width //
+          && justifyLastLine == other.justifyLastLine //
+          && Float.floatToIntBits(whitespaceWeight) == Float.floatToIntBits(other.whitespaceWeight)
+          && mode == other.mode;
+    }
+
+    @Override public int hashCode() {
+      int result = System.identityHashCode(metricsKey);
+      result = 31 * result + width;
+      result = 31 * result + (justifyLastLine ? 1 : 0);
+      result = 31 * result + Float.floatToIntBits(whitespaceWeight);
+      result = 31 * result + mode.hashCode();
+      return result;
+    }
+  }
+}
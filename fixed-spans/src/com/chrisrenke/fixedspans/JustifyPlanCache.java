@@ -0,0 +1,177 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.text.Spanned;
+import android.text.TextPaint;
+import android.text.style.MetricAffectingSpan;
+import android.text.style.ReplacementSpan;
+import java.io.File;
+import java.util.concurrent.Executor;
+
+import static com.chrisrenke.fixedspans.JustifySpan.Mode;
+
+/**
+ * Persistent cache of justified line breaks and spacing, so that texts shown again, even by
+ * another process, are justified without laying out or measuring anything. Once
+ * {@link #install installed} it is used by every {@link JustifyTask}, on the task's executor;
+ * passes on the main thread never touch it.
+ *
+ * <p>Plans are keyed by the text, the spans that change its metrics, the width, the justify
+ * settings and the text paint. Only the platform typefaces and those loaded through
+ * {@link TypefaceRegistry} can be named across processes, so text in any other typeface is not
+ * cached. Neither is text with a metric affecting or replacement span other than
+ * {@link MonospaceSpan}, {@link TabularSpan} and {@link CachedTypefaceSpan}, whose settings
+ * cannot be told apart. The OS build is part of the key, as an update may change the fonts.
+ */
+public final class JustifyPlanCache {
+  static volatile JustifyPlanCache installed;
+
+  /** Makes every justify pass consult {@code cache}; null turns caching off again. */
+  public static void install(JustifyPlanCache cache) {
+    installed = cache;
+  }
+
+  public static JustifyPlanCache getInstalled() {
+    return installed;
+  }
+
+  /**
+   * Returns a cache that keeps up to {@code maxBytes} in the app's cache directory and writes on
+   * {@code writeExecutor}, where the directory is also opened right away.
+   */
+  public static JustifyPlanCache create(Context context, long maxBytes, Executor writeExecutor) {
+    File directory = new File(context.getCacheDir(), "fixedspans-justify");
+    return new JustifyPlanCache(new JustifyPlanStore(directory, maxBytes), writeExecutor);
+  }
+
+  private final JustifyPlanStore store;
+  private final Executor writeExecutor;
+
+  public JustifyPlanCache(final JustifyPlanStore store, Executor writeExecutor) {
+    this.store = store;
+    this.writeExecutor = writeExecutor;
+    writeExecutor.execute(new Runnable() {
+      @Override public void run() {
+        store.open();
+      }
+    });
+  }
+
+  public void clear() {
+    writeExecutor.execute(new Runnable() {
+      @Override public void run() {
+        store.clear();
+      }
+    });
+  }
+
+  /**
+   * Returns the stored plan for {@code source} justified with the given inputs, or null. Reads a
+   * file, so must not be called on the main thread.
+   */
+  JustifyPlan get(CharSequence source, TextPaint paint, int width, boolean justifyLastLine,
+      float whitespaceWeight, Mode mode) {
+    String parameters = parameters(source, paint, width, justifyLastLine, whitespaceWeight, mode);
+    if (parameters == null) return null;
+    return store.get(source, parameters);
+  }
+
+  /** Stores {@code plan} for {@code source}, which must not change, in the background. */
+  void put(final CharSequence source, TextPaint paint, int width, boolean justifyLastLine,
+      float whitespaceWeight, Mode mode, final JustifyPlan plan) {
+    final String parameters =
+        parameters(source, paint, width, justifyLastLine, whitespaceWeight, mode);
+    if (parameters == null) return;
+    writeExecutor.execute(new Runnable() {
+      @Override public void run() {
+        store.put(source, parameters, plan);
+      }
+    });
+  }
+
+  /** Describes everything but the text a plan depends on, or null if it cannot be named. */
+  private static String parameters(CharSequence source, TextPaint paint, int width,
+      boolean justifyLastLine, float whitespaceWeight, Mode mode) {
+    String typeface = typefaceName(paint.getTypeface());
+    if (typeface == null) return null;
+    String spans = spans(source);
+    if (spans == null) return null;
+    return typeface
+        + '|' + paint.getTextSize()
+        + '|' + paint.getTextScaleX()
+        + '|' + paint.getTextSkewX()
+        + '|' + GlyphMetricsCache.getLetterSpacing(paint)
+        + '|' + paint.getFlags()
+        + '|' + width
+        + '|' + justifyLastLine
+        + '|' + whitespaceWeight
+        + '|' + mode
+        + '|' + Build.VERSION.SDK_INT
+        + '|' + Build.FINGERPRINT
+        + '|' + spans;
+  }
+
+  /** Describes the spans that change the metrics of {@code source}, or null if one cannot be. */
+  private static String spans(CharSequence source) {
+    JustifyPlanSpans description = new JustifyPlanSpans();
+    if (!(source instanceof Spanned)) return description.toString();
+    Spanned spanned = (Spanned) source;
+    for (Object span : spanned.getSpans(0, spanned.length(), Object.class)) {
+      if (!(span instanceof MetricAffectingSpan) && !(span instanceof ReplacementSpan)) continue;
+      String parameters = spanParameters(span);
+      if (parameters == null) return null;
+      description.add(span.getClass().getName(), spanned.getSpanStart(span),
+          spanned.getSpanEnd(span), parameters);
+    }
+    return description.toString();
+  }
+
+  /** Names what {@code span} measures with; subclasses may measure differently, so are not. */
+  private static String spanParameters(Object span) {
+    if (span.getClass() == MonospaceSpan.class) {
+      String relativeCharacters = ((MonospaceSpan) span).relativeCharacters();
+      return relativeCharacters != null ? "reference:" + relativeCharacters : "relative";
+    }
+    if (span.getClass() == TabularSpan.class) {
+      WidthClassTable widthClasses = ((TabularSpan) span).widthClasses();
+      StringBuilder classes = new StringBuilder();
+      for (int widthClass = 0; widthClass < widthClasses.classCount(); widthClass++) {
+        String characters = widthClasses.characters(widthClass);
+        classes.append(characters.length()).append(':').append(characters);
+      }
+      return classes.toString();
+    }
+    if (span.getClass() == CachedTypefaceSpan.class) {
+      return typefaceName(((CachedTypefaceSpan) span).getTypeface());
+    }
+    return null;
+  }
+
+  private static String typefaceName(Typeface typeface) {
+    if (typeface == null || typeface == Typeface.DEFAULT) return "default";
+    if (typeface == Typeface.DEFAULT_BOLD) return "default-bold";
+    if (typeface == Typeface.SANS_SERIF) return "sans-serif";
+    if (typeface == Typeface.SERIF) return "serif";
+    if (typeface == Typeface.MONOSPACE) return "monospace";
+    String path = TypefaceRegistry.pathOf(typeface);
+    return path != null ? "asset:" + path : null;
+  }
+}
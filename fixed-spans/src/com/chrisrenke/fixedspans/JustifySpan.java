@@ -17,19 +17,31 @@
 package com.chrisrenke.fixedspans;
 
 import android.graphics.Canvas;
-import android.graphics.Color;
 import android.graphics.Paint;
+import android.text.Editable;
 import android.text.Layout;
-import android.text.SpannableString;
+import android.text.Spannable;
 import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.StaticLayout;
 import android.text.TextPaint;
 import android.text.style.ReplacementSpan;
 import android.view.ViewTreeObserver;
 import android.widget.TextView;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import static android.text.Spanned.SPAN_EXCLUSIVE_EXCLUSIVE;
+import static android.text.Spanned.SPAN_INCLUSIVE_INCLUSIVE;
 import static com.chrisrenke.fixedspans.JustifySpan.Mode.ALL_CHARACTERS;
 import static com.chrisrenke.fixedspans.JustifySpan.Mode.WHITESPACE_ONLY;
-import static java.lang.Character.isWhitespace;
 
 /**
  * Justifies a line of text relative to the given width (assumed to be the width of the view).
@@ -38,6 +50,13 @@ import static java.lang.Character.isWhitespace;
  * handle all the hard work for you.
  */
 public class JustifySpan extends ReplacementSpan {
+  /** Chunks a long text is split into for {@link #justifyParagraphs}. */
+  private static final int PARALLEL_CHUNKS = 4 * Runtime.getRuntime().availableProcessors();
+  /** Shortest chunk worth handing to another thread. */
+  private static final int MIN_CHUNK_LENGTH = 2048;
+
+  /** Results of earlier passes over plain text views, see {@link JustifyMemo}. */
+  private static final Map<TextView, JustifyMemo> MEMOS = new WeakHashMap<TextView, JustifyMemo>();
 
   /** Justifies the given {@code textView} with weighted all character justification. */
   public static void justify(final TextView textView, final boolean justifyLastLine,
@@ -52,100 +71,49 @@ public class JustifySpan extends ReplacementSpan {
 
   public static enum Mode {WHITESPACE_ONLY, ALL_CHARACTERS}
 
-  private final float lineWidth;
-  private final float whitespaceWeight;
+  private final JustifyLayout layout;
+  private final PaintGlyphMetrics metrics = new PaintGlyphMetrics();
+  private final CanvasGlyphSink sink = new CanvasGlyphSink();
 
   public JustifySpan(float lineWidth) {
     this(lineWidth, -1);
   }
 
   public JustifySpan(float lineWidth, float whitespaceWeight) {
-    this.lineWidth = lineWidth;
-    this.whitespaceWeight = whitespaceWeight;
+    this.layout = new JustifyLayout(lineWidth, whitespaceWeight);
   }
 
   /** Since this span justifies text, it will always take the full line width. */
   @Override
   public int getSize(Paint paint, CharSequence text, int start, int end, Paint.FontMetricsInt fm) {
-    return (int) lineWidth;
+    SpanMetricsListener listener = SpanMetrics.listener;
+    if (listener != null) listener.onGetSize(this);
+    return (int) layout.lineWidth();
   }
 
   @Override
   public void draw(Canvas canvas, CharSequence text, int start, int end, float x, int top, int y,
       int bottom, Paint paint) {
-    CharSequence actualText = text.subSequence(start, end);
-
-    // Prune trailing whitespace characters from line
-    if (Character.isWhitespace(actualText.charAt(actualText.length() - 1))) {
-      actualText = actualText.subSequence(0, actualText.length() - 1);
-    }
-
-    float textWidth = paint.measureText(actualText, 0, actualText.length());
-    float differenceWidth = lineWidth - textWidth;
-
-    // If there's no available space, draw the text as usual.
-    if (differenceWidth <= 0) {
-      canvas.drawText(text, start, end, x, y, paint);
-      return;
-    }
-
-    int whitespaceCharacters = 0;
-    for (int i = 0; i < actualText.length(); i++) {
-      if (isWhitespace(actualText.charAt(i))) whitespaceCharacters++;
-    }
-
-    if (whitespaceWeight > 0) {
-      drawTextOmniSpacing(canvas, text, start, end, x, y, paint, actualText, differenceWidth,
-          whitespaceCharacters);
-    } else {
-      drawTextWhitespace(canvas, text, start, end, x, y, paint, actualText, differenceWidth,
-          whitespaceCharacters);
-    }
+    SpanMetricsListener listener = SpanMetrics.listener;
+    if (listener != null) listener.onDraw(this);
+    prepare(text, start, end, paint);
+    layout.draw(sink.set(canvas, paint, y), text, start, end, x);
   }
 
   /**
-   * Draws the given sequence of text onto the canvas with additional width given to whitespace
-   * characters; non-whitespace characters will be drawn normally.
+   * Computes the spacing plan for the given range ahead of the first draw, e.g. on a background
+   * thread with a copy of the paint the text will be drawn with.
    */
-  private void drawTextWhitespace(Canvas canvas, CharSequence text, int start, int end, float x,
-      int y, Paint paint, CharSequence actualText, float differenceWidth,
-      int whitespaceCharacters) {
-
-    ((TextPaint) paint).bgColor = Color.RED;
-    float addPerWhitespace = differenceWidth / (float) whitespaceCharacters;
-
-    for (int i = 0; i < actualText.length(); i++) {
-      float characterWidth = paint.measureText(actualText, i, i + 1);
-      canvas.drawText(actualText, i, i + 1, x, y, paint);
-      x += characterWidth;
-      if (isWhitespace(actualText.charAt(i))) x += addPerWhitespace;
-    }
+  void prepare(CharSequence text, int start, int end, Paint paint) {
+    metrics.set(paint);
+    layout.prepare(metrics, metrics.key(), text, start, end);
   }
 
-  /**
-   * Draws the given sequence of text onto the canvas with additional spacing placed around every
-   * character, with more or less space given to whitespace characters based on the strength of
-   * this span's {@code whitespaceWeight}.
-   */
-  private void drawTextOmniSpacing(Canvas canvas, CharSequence text, int start, int end, float x,
-      int y, Paint paint, CharSequence actualText, float differenceWidth,
-      int whitespaceCharacters) {
-    int nonWhitespaceCharacters = actualText.length() - whitespaceCharacters;
-
-    float addPerCharacter =
-        differenceWidth / ((whitespaceCharacters * whitespaceWeight) + nonWhitespaceCharacters);
-    float halfAddPerCharacter = addPerCharacter / 2f;
-
-    for (int i = 0; i < actualText.length(); i++) {
-      float characterWidth = paint.measureText(actualText, i, i + 1);
-      float characterPadding = isWhitespace(actualText.charAt(i)) //
-          ? halfAddPerCharacter * whitespaceWeight //
-          : halfAddPerCharacter;
-
-      x += characterPadding;
-      canvas.drawText(actualText, i, i + 1, x, y, paint);
-      x += characterPadding + characterWidth;
-    }
+  /** Adopts a stored spacing plan for the given range instead of measuring it. */
+  void restore(CharSequence text, int start, int end, Paint paint, boolean justified,
+      boolean runs, float[] offsets) {
+    metrics.set(paint);
+    layout.restore(metrics.key(), text, start, end, justified, runs, offsets);
   }
 
   /** Internal method to be started from the two sister justify() methods or package members. */
@@ -161,37 +129,641 @@ public class JustifySpan extends ReplacementSpan {
     });
   }
 
-  private static void doJustify(TextView textView, boolean justifyLastLine, float whitespaceWeight,
+  static void doJustify(TextView textView, boolean justifyLastLine, float whitespaceWeight,
       Mode mode) {
+    JustifyMemo memo = MEMOS.get(textView);
+    if (memo == null) {
+      memo = new JustifyMemo();
+      MEMOS.put(textView, memo);
+    }
+    doJustify(textView, justifyLastLine, whitespaceWeight, mode, memo, -1, -1);
+  }
+
+  /**
+   * Justifies {@code textView}, reusing results of earlier passes held in {@code memo}. If the
+   * chars between {@code editStart} and {@code editEnd} of justified text were edited in place
+   * since, with all else unchanged, only the lines around them are rebuilt. A negative
+   * {@code editStart} means the edit is not known.
+   */
+  static void doJustify(TextView textView, boolean justifyLastLine, float whitespaceWeight,
+      Mode mode, JustifyMemo memo, int editStart, int editEnd) {
+    SpanMetricsListener listener = SpanMetrics.listener;
+    long startTime = listener != null ? System.nanoTime() : 0;
     Layout layout = textView.getLayout();
 
     // If layout is null, we can't do anything, abort abort abort.
     if (layout == null) return;
 
+    int width = textView.getWidth() - textView.getPaddingLeft() - textView.getPaddingRight();
+    CharSequence text = textView.getText();
+
+    // Nothing changed since this text was justified, so leave the view alone.
+    if (isJustified(text, textView.getPaint(), width, justifyLastLine, whitespaceWeight, mode)) {
+      return;
+    }
+
+    // Text that is not our output is new, so nothing remembered for the old text applies.
+    JustifiedMarker marker = findMarker(text);
+    if (marker == null) memo.clear();
+
+    // Back at a width seen before with the same source, so swap in that result.
+    Object metricsKey = GlyphMetricsCache.forPaint(textView.getPaint());
+    float weight = effectiveWeight(whitespaceWeight, mode);
+    if (marker != null && !marker.edited) {
+      CharSequence remembered = memo.get(marker.sourceLength, marker.sourceHash, metricsKey, width,
+          justifyLastLine, weight, mode);
+      if (remembered != null) {
+        textView.setText(remembered);
+        return;
+      }
+    }
+
+    // Edited in place with nothing else changed, so only the edited paragraph needs breaking.
+    if (marker != null && editStart >= 0 && text instanceof Editable
+        && marker.matches(metricsKey, width, justifyLastLine, weight, mode)) {
+      rejustify((Editable) text, editStart, editEnd, textView.getPaint(), width, justifyLastLine,
+          whitespaceWeight, mode);
+      return;
+    }
+
+    // Earlier output must be laid out from its source, not from the breaks it had inserted. Its
+    // spans are kept for the lines that break where they did before.
+    PreviousLines previous = null;
+    if (marker != null) {
+      layout = new StaticLayout(sourceOf((Spanned) text), textView.getPaint(), width,
+          Layout.Alignment.ALIGN_NORMAL, 1f, 0f, false);
+      previous = new PreviousLines((Spanned) text);
+    }
+
+    // The plan cache is only used by JustifyTask, as it reads and writes files.
+    SpannableStringBuilder spannableStringBuilder = justifyLines(layout, width, justifyLastLine,
+        whitespaceWeight, mode, null, previous, null);
+
+    // Update textView with new charsequence; it copies the text, so the builder is handed over.
+    textView.setText(spannableStringBuilder);
+    JustifiedMarker justified = findMarker(spannableStringBuilder);
+    memo.put(justified.sourceLength, justified.sourceHash, metricsKey, width, justifyLastLine,
+        weight, mode, spannableStringBuilder);
+    if (listener != null) {
+      listener.onJustifyPass(layout.getLineCount(), System.nanoTime() - startTime);
+    }
+  }
+
+  /**
+   * Builds the justified text for the lines of {@code layout}. If {@code planPaint} is given, the
+   * spacing of every line is planned up front so the first draw does not need to measure. Returns
+   * null if {@code task} is cancelled part way through.
+   */
+  static SpannableStringBuilder justifyLines(Layout layout, int width, boolean justifyLastLine,
+      float whitespaceWeight, Mode mode, TextPaint planPaint, JustifyTask task) {
+    return justifyLines(layout, width, justifyLastLine, whitespaceWeight, mode, planPaint, null,
+        task);
+  }
+
+  /** Like the above, but lines that match one of {@code previous} keep its span. */
+  private static SpannableStringBuilder justifyLines(Layout layout, int width,
+      boolean justifyLastLine, float whitespaceWeight, Mode mode, TextPaint planPaint,
+      PreviousLines previous, JustifyTask task) {
     int lines = layout.getLineCount();
     SpannableStringBuilder spannableStringBuilder = new SpannableStringBuilder();
+    if (!appendLines(spannableStringBuilder, layout, lines, true, justifyLastLine || lines <= 1,
+        width, whitespaceWeight, mode, planPaint, previous, task)) {
+      return null;
+    }
+    markJustified(spannableStringBuilder, layout.getText(), layout.getPaint(), width,
+        justifyLastLine, whitespaceWeight, mode);
+    return spannableStringBuilder;
+  }
+
+  /**
+   * Builds the justified text for {@code source} from a stored {@code plan}, without laying out
+   * or measuring anything.
+   */
+  static SpannableStringBuilder applyPlan(CharSequence source, JustifyPlan plan, TextPaint paint,
+      int width, boolean justifyLastLine, float whitespaceWeight, Mode mode) {
+    SpannableStringBuilder spannableStringBuilder = new SpannableStringBuilder();
+    int lines = plan.lineCount();
+    for (int line = 0, sourceStart = 0; line < lines; line++) {
+      int sourceEnd = plan.lineEnd(line);
+      int lineStart = spannableStringBuilder.length();
+      spannableStringBuilder.append(source, sourceStart, sourceEnd);
+      int lineEnd = spannableStringBuilder.length();
+      if (plan.isSpanned(line) && lineEnd > lineStart) {
+        JustifySpan span = newSpan(width, whitespaceWeight, mode);
+        spannableStringBuilder.setSpan(span, lineStart, lineEnd, SPAN_EXCLUSIVE_EXCLUSIVE);
+        span.restore(spannableStringBuilder, lineStart, lineEnd, paint, plan.isJustified(line),
+            plan.drawsRuns(line), plan.offsets(line));
+      }
+      if (line != lines - 1) {
+        spannableStringBuilder.append('\n');
+        markInsertedBreak(spannableStringBuilder, lineEnd);
+      }
+      sourceStart = sourceEnd;
+    }
+    markJustified(spannableStringBuilder, source, paint, width, justifyLastLine, whitespaceWeight,
+        mode);
+    return spannableStringBuilder;
+  }
+
+  /**
+   * Records the breaks and spacing of {@code justified}, which must have been built with a
+   * {@code planPaint} so that every span holds its plan.
+   */
+  static JustifyPlan capturePlan(Spanned justified) {
+    JustifyPlan plan = new JustifyPlan();
+    float[] offsets = new float[0];
+    int length = justified.length();
+    for (int i = 0, lineStart = 0, breaks = 0; i <= length; i++) {
+      if (i < length && !isInsertedBreak(justified, i)) continue;
+      JustifySpan span = null;
+      for (JustifySpan candidate : justified.getSpans(lineStart, i, JustifySpan.class)) {
+        if (justified.getSpanStart(candidate) == lineStart
+            && justified.getSpanEnd(candidate) == i) {
+          span = candidate;
+        }
+      }
+      boolean justifiedLine = span != null && span.layout.isJustified();
+      int count = justifiedLine ? span.layout.clusterCount() : 0;
+      if (offsets.length < count) offsets = new float[count];
+      for (int cluster = 0; cluster < count; cluster++) {
+        offsets[cluster] = span.layout.offset(cluster);
+      }
+      boolean runs = justifiedLine && span.layout.drawsRuns();
+      plan.addLine(i - breaks, span != null, justifiedLine, runs, offsets, count);
+      lineStart = i + 1;
+      breaks++;
+    }
+    return plan;
+  }
+
+  /**
+   * Like {@link #justifyLines}, but breaks and plans the paragraphs of long texts in chunks that
+   * run in parallel on {@code workers}, then joins the chunks in order. Blocks until done, so
+   * {@code workers} must not be the executor this runs on.
+   */
+  static SpannableStringBuilder justifyParagraphs(CharSequence text, TextPaint paint, int width,
+      boolean justifyLastLine, float whitespaceWeight, Mode mode, ExecutorService workers,
+      JustifyTask task) {
+    int[] chunks = paragraphChunks(text, PARALLEL_CHUNKS, MIN_CHUNK_LENGTH);
+    int chunkCount = chunks.length - 1;
+    if (chunkCount == 1) {
+      Layout layout =
+          new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, false);
+      return justifyLines(layout, width, justifyLastLine, whitespaceWeight, mode, paint, task);
+    }
+
+    List<Callable<SpannableStringBuilder>> jobs =
+        new ArrayList<Callable<SpannableStringBuilder>>(chunkCount);
+    for (int chunk = 0; chunk < chunkCount; chunk++) {
+      jobs.add(new ChunkJob(text, chunks[chunk], chunks[chunk + 1], chunk == chunkCount - 1,
+          new TextPaint(paint), width, justifyLastLine, whitespaceWeight, mode, task));
+    }
+
+    SpannableStringBuilder spannableStringBuilder = new SpannableStringBuilder();
+    try {
+      for (Future<SpannableStringBuilder> result : workers.invokeAll(jobs)) {
+        SpannableStringBuilder chunk = result.get();
+        if (chunk == null) return null;
+        spannableStringBuilder.append(chunk);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+    markJustified(spannableStringBuilder, text, paint, width, justifyLastLine, whitespaceWeight,
+        mode);
+    return spannableStringBuilder;
+  }
+
+  /**
+   * Appends the first {@code lines} lines of {@code layout}, each in a {@link JustifySpan} and
+   * followed by an inserted break unless it is the last line of the text. The last line is only
+   * justified if {@code justifyFinalLine}. Returns false if {@code task} is cancelled part way.
+   * Lines that cover the same source range as one of {@code previous} reuse its span.
+   */
+  private static boolean appendLines(SpannableStringBuilder spannableStringBuilder, Layout layout,
+      int lines, boolean endsText, boolean justifyFinalLine, int width, float whitespaceWeight,
+      Mode mode, TextPaint planPaint, PreviousLines previous, JustifyTask task) {
+    CharSequence text = layout.getText();
     for (int line = 0; line < lines; line++) {
-      CharSequence lineText =
-          layout.getText().subSequence(layout.getLineStart(line), layout.getLineEnd(line));
+      if (task != null && task.isCancelled()) return false;
+
+      int sourceStart = layout.getLineStart(line);
+      int sourceEnd = layout.getLineEnd(line);
+      boolean finalLine = endsText && line == lines - 1;
 
       // If justifyLastLine is false, don't format the last line at all
-      if (lines > 1 && line == lines - 1 && !justifyLastLine) {
-        spannableStringBuilder.append(lineText);
+      if (finalLine && !justifyFinalLine) {
+        spannableStringBuilder.append(text, sourceStart, sourceEnd);
       } else {
-        SpannableString spannableString = new SpannableString(lineText);
-        int width = textView.getWidth() - textView.getPaddingLeft() - textView.getPaddingRight();
-        JustifySpan span = mode == WHITESPACE_ONLY //
-            ? new JustifySpan(width) //
-            : new JustifySpan(width, whitespaceWeight);
-        spannableString.setSpan(span, 0, spannableString.length(), 0);
-        spannableStringBuilder.append(spannableString);
+        int lineStart = spannableStringBuilder.length();
+        spannableStringBuilder.append(text, sourceStart, sourceEnd);
+        int lineEnd = spannableStringBuilder.length();
+        if (lineEnd > lineStart) {
+          JustifySpan span = previous != null //
+              ? previous.take(sourceStart, sourceEnd, width, whitespaceWeight, mode) //
+              : null;
+          if (span == null) span = newSpan(width, whitespaceWeight, mode);
+          spannableStringBuilder.setSpan(span, lineStart, lineEnd, SPAN_EXCLUSIVE_EXCLUSIVE);
+          if (planPaint != null) {
+            span.prepare(spannableStringBuilder, lineStart, lineEnd, planPaint);
+          }
+        }
       }
 
       // Add a manual newline or bad stuff happens as a result of replacement span.
-      spannableStringBuilder.append(line != lines - 1 ? "\n" : "");
+      if (!finalLine) {
+        int breakIndex = spannableStringBuilder.length();
+        spannableStringBuilder.append('\n');
+        markInsertedBreak(spannableStringBuilder, breakIndex);
+      }
+    }
+    return true;
+  }
+
+  private static void markJustified(SpannableStringBuilder justified, CharSequence source,
+      Paint paint, int width, boolean justifyLastLine, float whitespaceWeight, Mode mode) {
+    JustifiedMarker marker = new JustifiedMarker(GlyphMetricsCache.forPaint(paint), width,
+        justifyLastLine, effectiveWeight(whitespaceWeight, mode), mode, false, source.length(),
+        hash(source), justified.length(), hash(justified));
+    justified.setSpan(marker, 0, justified.length(), SPAN_INCLUSIVE_INCLUSIVE);
+  }
+
+  /**
+   * Splits {@code text} after newlines into at most about {@code maxChunks} chunks of at least
+   * {@code minLength} chars, returned as their boundaries, the first 0 and the last the length.
+   */
+  static int[] paragraphChunks(CharSequence text, int maxChunks, int minLength) {
+    int length = text.length();
+    int targetLength = Math.max(minLength, length / maxChunks);
+    int[] bounds = new int[maxChunks + 2];
+    int count = 1;
+    int chunkStart = 0;
+    for (int i = 0; i < length && count <= maxChunks; i++) {
+      if (text.charAt(i) == '\n' && i + 1 - chunkStart >= targetLength && i + 1 < length) {
+        chunkStart = i + 1;
+        bounds[count++] = chunkStart;
+      }
     }
+    bounds[count++] = length;
+    return Arrays.copyOf(bounds, count);
+  }
+
+  /**
+   * The spans of an earlier justified text by the source range of their lines. Lines are taken in
+   * order, so a pass looks each one up in constant time.
+   */
+  private static final class PreviousLines {
+    private final int[] starts;
+    private final int[] ends;
+    private final JustifySpan[] spans;
+    private int next;
+
+    PreviousLines(Spanned justified) {
+      spans = justified.getSpans(0, justified.length(), JustifySpan.class);
+      int[] breakIndices = insertedBreaks(justified);
+      starts = new int[spans.length];
+      ends = new int[spans.length];
+      for (int i = 0; i < spans.length; i++) {
+        starts[i] = justified.getSpanStart(spans[i]);
+      }
+      sortByStart();
+
+      // Every inserted break before a span shifts it away from its source range by one.
+      for (int i = 0, breakCount = 0; i < spans.length; i++) {
+        while (breakCount < breakIndices.length && breakIndices[breakCount] < starts[i]) {
+          breakCount++;
+        }
+        ends[i] = justified.getSpanEnd(spans[i]) - breakCount;
+        starts[i] -= breakCount;
+      }
+    }
+
+    /** Insertion sort, as the spans of a justify pass come back in order or nearly so. */
+    private void sortByStart() {
+      for (int i = 1; i < spans.length; i++) {
+        int start = starts[i];
+        JustifySpan span = spans[i];
+        int j = i - 1;
+        for (; j >= 0 && starts[j] > start; j--) {
+          starts[j + 1] = starts[j];
+          spans[j + 1] = spans[j];
+        }
+        starts[j + 1] = start;
+        spans[j + 1] = span;
+      }
+    }
+
+    /**
+     * Returns the span of the earlier line with exactly this source range if it justifies in the
+     * same way, or null.
+     */
+    JustifySpan take(int start, int end, int width, float whitespaceWeight, Mode mode) {
+      while (next < starts.length && starts[next] < start) next++;
+      if (next == starts.length || starts[next] != start || ends[next] != end) return null;
+      JustifySpan span = spans[next++];
+      boolean sameSpacing = span.layout.lineWidth() == width
+          && Float.compare(span.layout.whitespaceWeight(),
+              effectiveWeight(whitespaceWeight, mode)) == 0;
+      return sameSpacing ? span : null;
+    }
+  }
+
+  /** Breaks and plans one chunk of paragraphs on a worker thread. */
+  private static final class ChunkJob implements Callable<SpannableStringBuilder> {
+    private final CharSequence text;
+    private final int start;
+    private final int end;
+    private final boolean endsText;
+    private final TextPaint paint;
+    private final int width;
+    private final boolean justifyLastLine;
+    private final float whitespaceWeight;
+    private final Mode mode;
+    private final JustifyTask task;
+
+    ChunkJob(CharSequence text, int start, int end, boolean endsText, TextPaint paint, int width,
+        boolean justifyLastLine, float whitespaceWeight, Mode mode, JustifyTask task) {
+      this.text = text;
+      this.start = start;
+      this.end = end;
+      this.endsText = endsText;
+      this.paint = paint;
+      this.width = width;
+      this.justifyLastLine = justifyLastLine;
+      this.whitespaceWeight = whitespaceWeight;
+      this.mode = mode;
+      this.task = task;
+    }
+
+    @Override public SpannableStringBuilder call() {
+      Layout layout = new StaticLayout(text, start, end, paint, width,
+          Layout.Alignment.ALIGN_NORMAL, 1f, 0f, false);
+      // A chunk ending in a newline gets an empty line after it, which belongs to the next chunk.
+      int lines = layout.getLineCount() - (endsText ? 0 : 1);
+      SpannableStringBuilder chunk = new SpannableStringBuilder();
+      return appendLines(chunk, layout, lines, endsText, justifyLastLine, width,
+          whitespaceWeight, mode, paint, null, task) ? chunk : null;
+    }
+  }
+
 
-    // Update textView with new charsequence
-    textView.setText(spannableStringBuilder.subSequence(0, spannableStringBuilder.length()));
+  /**
+   * Re-justifies {@code text} in place after the characters between {@code editStart} and
+   * {@code editEnd} were changed. Only the lines from the one before the edit up to the first line
+   * whose break did not move are rebuilt; all other text and spans are left untouched.
+   */
+  static void rejustify(Editable text, int editStart, int editEnd, TextPaint paint, int width,
+      boolean justifyLastLine, float whitespaceWeight, Mode mode) {
+    SpanMetricsListener listener = SpanMetrics.listener;
+    long startTime = listener != null ? System.nanoTime() : 0;
+    editStart = Math.min(editStart, text.length());
+    int regionStart = lineStart(text, editStart);
+
+    // Shortening the first word of a line can let it move up into the line before.
+    if (regionStart > 0 && isInsertedBreak(text, regionStart - 1)) {
+      regionStart = lineStart(text, regionStart - 1);
+    }
+
+    int[] oldBreaks = new int[8];
+    int[] oldSourceBreaks = new int[8];
+    for (int linesPastEdit = 2; ; linesPastEdit *= 2) {
+      // Collect the source text of the region, stripped of the breaks inserted by earlier passes.
+      StringBuilder source = new StringBuilder();
+      int breakCount = 0;
+      int sourceEditEnd = -1;
+      int end = regionStart;
+      for (int breaksPastEdit = 0; end < text.length(); end++) {
+        if (end == editEnd) sourceEditEnd = source.length();
+        if (isInsertedBreak(text, end)) {
+          if (end >= editEnd && breaksPastEdit++ == linesPastEdit) break;
+          if (breakCount == oldBreaks.length) {
+            oldBreaks = grow(oldBreaks);
+            oldSourceBreaks = grow(oldSourceBreaks);
+          }
+          oldBreaks[breakCount] = end;
+          oldSourceBreaks[breakCount++] = source.length();
+        } else {
+          source.append(text.charAt(end));
+        }
+      }
+      if (sourceEditEnd < 0) sourceEditEnd = source.length();
+      boolean complete = end == text.length();
+
+      StaticLayout layout =
+          new StaticLayout(source, paint, width, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, false);
+      int lineCount = layout.getLineCount();
+
+      // The last line of the window is cut short, so only the breaks before it can be trusted.
+      int convergedLine = -1;
+      int convergedBreak = -1;
+      for (int line = 0, oldBreak = 0; line < lineCount - 1 && convergedLine < 0; line++) {
+        int lineEnd = layout.getLineEnd(line);
+        if (lineEnd < sourceEditEnd) continue;
+        while (oldBreak < breakCount && oldSourceBreaks[oldBreak] < lineEnd) oldBreak++;
+        if (oldBreak < breakCount && oldSourceBreaks[oldBreak] == lineEnd) {
+          convergedLine = line;
+          convergedBreak = oldBreak;
+        }
+      }
+      if (convergedLine < 0 && !complete) continue;
+
+      // Strip the old lines of the region, back to front so the break offsets stay valid.
+      int regionEnd = convergedLine < 0 ? text.length() : oldBreaks[convergedBreak];
+      for (JustifySpan span : text.getSpans(regionStart, regionEnd, JustifySpan.class)) {
+        if (text.getSpanStart(span) >= regionStart && text.getSpanEnd(span) <= regionEnd) {
+          text.removeSpan(span);
+        }
+      }
+      int strippedBreaks = convergedLine < 0 ? breakCount : convergedBreak;
+      for (int i = strippedBreaks - 1; i >= 0; i--) {
+        text.delete(oldBreaks[i], oldBreaks[i] + 1);
+      }
+
+      // Lay the new lines back in; the converged line keeps the break it already had.
+      int lastLine = convergedLine < 0 ? lineCount - 1 : convergedLine;
+      boolean singleLine = regionStart == 0 && complete && lineCount == 1;
+      for (int line = 0; line <= lastLine; line++) {
+        int lineStart = regionStart + layout.getLineStart(line) + line;
+        int lineEnd = regionStart + layout.getLineEnd(line) + line;
+        boolean lastOfText = convergedLine < 0 && line == lastLine;
+        if (lineEnd > lineStart && (!lastOfText || justifyLastLine || singleLine)) {
+          text.setSpan(newSpan(width, whitespaceWeight, mode), lineStart, lineEnd,
+              SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+        if (line < lastLine) {
+          text.insert(lineEnd, "\n");
+          markInsertedBreak(text, lineEnd);
+        }
+      }
+
+      // The text no longer matches the source the marker was made for. The marker may be shared
+      // with a remembered result, so it is replaced rather than changed.
+      JustifiedMarker marker = findMarker(text);
+      if (marker != null && !marker.edited) {
+        text.removeSpan(marker);
+        text.setSpan(marker.edited(), 0, text.length(), SPAN_INCLUSIVE_INCLUSIVE);
+      }
+      if (listener != null) listener.onJustifyPass(lastLine + 1, System.nanoTime() - startTime);
+      return;
+    }
+  }
+
+  /**
+   * True if {@code text} is the unchanged output of a justify pass with the given inputs, in
+   * which case another pass would produce the very same text. A {@code paint} that measures
+   * differently from the one of the pass, e.g. after a text size change, needs a new pass. The
+   * chars are compared by length and hash with those the pass produced, so only a text that
+   * passes every other check is read at all.
+   */
+  static boolean isJustified(CharSequence text, Paint paint, int width, boolean justifyLastLine,
+      float whitespaceWeight, Mode mode) {
+    JustifiedMarker marker = findMarker(text);
+    if (marker == null || marker.edited || text.length() != marker.justifiedLength) return false;
+    if (!marker.matches(GlyphMetricsCache.forPaint(paint), width, justifyLastLine,
+        effectiveWeight(whitespaceWeight, mode), mode)) {
+      return false;
+    }
+    return hash(text) == marker.justifiedHash;
+  }
+
+  static JustifiedMarker findMarker(CharSequence text) {
+    if (!(text instanceof Spanned)) return null;
+    Spanned spanned = (Spanned) text;
+    JustifiedMarker[] markers = spanned.getSpans(0, spanned.length(), JustifiedMarker.class);
+    return markers.length == 0 ? null : markers[0];
+  }
+
+  /** Strips everything an earlier justify pass added to {@code text}, keeping any other spans. */
+  static CharSequence sourceOf(Spanned text) {
+    SpannableStringBuilder source = new SpannableStringBuilder(text);
+    for (Object span : source.getSpans(0, source.length(), JustifySpan.class)) {
+      source.removeSpan(span);
+    }
+    for (Object span : source.getSpans(0, source.length(), JustifiedMarker.class)) {
+      source.removeSpan(span);
+    }
+    int[] breakIndices = insertedBreaks(source);
+    for (int i = breakIndices.length - 1; i >= 0; i--) {
+      source.delete(breakIndices[i], breakIndices[i] + 1);
+    }
+    return source;
+  }
+
+  /** Whitespace-only spans ignore the weight, so it plays no part in their output. */
+  private static float effectiveWeight(float whitespaceWeight, Mode mode) {
+    return mode == WHITESPACE_ONLY ? -1 : whitespaceWeight;
+  }
+
+  private static JustifySpan newSpan(int width, float whitespaceWeight, Mode mode) {
+    return mode == WHITESPACE_ONLY //
+        ? new JustifySpan(width) //
+        : new JustifySpan(width, whitespaceWeight);
+  }
+
+  /** Returns the index just past the closest newline before {@code index}. */
+  private static int lineStart(CharSequence text, int index) {
+    for (int i = index - 1; i >= 0; i--) {
+      if (text.charAt(i) == '\n') return i + 1;
+    }
+    return 0;
+  }
+
+  /**
+   * Returns the number of lines of justified {@code text}, as laid out by its pass: one more than
+   * the breaks the pass inserted. Source newlines are followed by an inserted break of their own.
+   */
+  static int lineCount(Spanned text) {
+    return text.getSpans(0, text.length(), InsertedBreak.class).length + 1;
+  }
+
+  private static void markInsertedBreak(Spannable text, int index) {
+    text.setSpan(new InsertedBreak(), index, index + 1, SPAN_EXCLUSIVE_EXCLUSIVE);
+  }
+
+  /** Returns the indices of the breaks inserted into {@code text}, in order. */
+  private static int[] insertedBreaks(Spanned text) {
+    InsertedBreak[] breaks = text.getSpans(0, text.length(), InsertedBreak.class);
+    int[] indices = new int[breaks.length];
+    for (int i = 0; i < breaks.length; i++) {
+      indices[i] = text.getSpanStart(breaks[i]);
+    }
+    Arrays.sort(indices);
+    return indices;
+  }
+
+  private static boolean isInsertedBreak(Spanned text, int index) {
+    return text.charAt(index) == '\n'
+        && text.getSpans(index, index + 1, InsertedBreak.class).length > 0;
+  }
+
+  /**
+   * 64-bit FNV-1a hash of the chars of {@code text}, without copying them. Wide enough that equal
+   * hashes of equally long texts are taken for equal chars.
+   */
+  private static long hash(CharSequence text) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0, length = text.length(); i < length; i++) {
+      hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  private static int[] grow(int[] array) {
+    int[] grown = new int[array.length * 2];
+    System.arraycopy(array, 0, grown, 0, array.length);
+    return grown;
+  }
+
+  /** Marks a newline that was added by justification rather than being part of the source. */
+  static final class InsertedBreak {
+  }
+
+  /** Covers the output of a justify pass and records the inputs it was produced from. */
+  static final class JustifiedMarker {
+    /** The {@link GlyphMetricsCache} entry of the paint the text was justified with. */
+    final Object metricsKey;
+    final int width;
+    final boolean justifyLastLine;
+    final float whitespaceWeight;
+    final Mode mode;
+    /** True once the text was edited in place and no longer matches. */
+    final boolean edited;
+    final int sourceLength;
+    final long sourceHash;
+    final int justifiedLength;
+    final long justifiedHash;
+
+    JustifiedMarker(Object metricsKey, int width, boolean justifyLastLine, float whitespaceWeight,
+        Mode mode, boolean edited, int sourceLength, long sourceHash, int justifiedLength,
+        long justifiedHash) {
+      this.metricsKey = metricsKey;
+      this.width = width;
+      this.justifyLastLine = justifyLastLine;
+      this.whitespaceWeight = whitespaceWeight;
+      this.mode = mode;
+      this.edited = edited;
+      this.sourceLength = sourceLength;
+      this.sourceHash = sourceHash;
+      this.justifiedLength = justifiedLength;
+      this.justifiedHash = justifiedHash;
+    }
+
+    /** A marker for the same inputs whose text was since edited in place. */
+    JustifiedMarker edited() {
+      return new JustifiedMarker(metricsKey, width, justifyLastLine, whitespaceWeight, mode, true,
+          sourceLength, sourceHash, justifiedLength, justifiedHash);
+    }
+
+    boolean matches(Object metricsKey, int width, boolean justifyLastLine, float whitespaceWeight,
+        Mode mode) {
+      return this.metricsKey == metricsKey
+          && this.width == width
+          && this.justifyLastLine == justifyLastLine
+          && Float.compare(this.whitespaceWeight, whitespaceWeight) == 0
+          && this.mode == mode;
+    }
   }
 }
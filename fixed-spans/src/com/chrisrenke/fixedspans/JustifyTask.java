@@ -0,0 +1,150 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Layout;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.SpannedString;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+import static com.chrisrenke.fixedspans.JustifySpan.Mode;
+
+/**
+ * Breaks and justifies text on a background {@link Executor}, then hands the finished text to a
+ * {@link Callback} on the main thread. Line breaking uses a standalone {@link StaticLayout} and
+ * every line's spacing is planned up front, so applying the result does no measuring at all. With
+ * a {@link JustifyPlanCache} installed, texts justified before skip breaking and planning too.
+ */
+public final class JustifyTask implements Runnable {
+
+  /** Receives the justified text on the main thread, unless the task was cancelled first. */
+  public interface Callback {
+    void onJustified(CharSequence justified);
+  }
+
+  private static final Handler MAIN_THREAD = new Handler(Looper.getMainLooper());
+
+  /**
+   * Starts justifying {@code text} for the given {@code width} on {@code executor}. The chars of
+   * the text and the paint are copied, so both may be changed as soon as this returns. Its spans
+   * are shared and measured on {@code executor}: {@link MonospaceSpan} and {@link TabularSpan}
+   * measure with state of each thread's own, but {@link TableColumn} cells and any other span
+   * with mutable measuring state must not be submitted.
+   */
+  public static JustifyTask submit(CharSequence text, TextPaint paint, int width,
+      boolean justifyLastLine, float whitespaceWeight, Mode mode, Executor executor,
+      Callback callback) {
+    return submitParallel(text, paint, width, justifyLastLine, whitespaceWeight, mode, executor,
+        null, callback);
+  }
+
+  /**
+   * Like {@link #submit}, but long texts are broken into chunks of whole paragraphs which are
+   * justified in parallel on {@code workers}. The task waits for the chunks on {@code executor},
+   * so {@code workers} must not be the same bounded pool. A null {@code workers} justifies on
+   * {@code executor} alone.
+   */
+  public static JustifyTask submitParallel(CharSequence text, TextPaint paint, int width,
+      boolean justifyLastLine, float whitespaceWeight, Mode mode, Executor executor,
+      ExecutorService workers, Callback callback) {
+    CharSequence source =
+        JustifySpan.findMarker(text) != null ? JustifySpan.sourceOf((Spanned) text) : text;
+    JustifyTask task = new JustifyTask(new SpannedString(source), new TextPaint(paint), width,
+        justifyLastLine, whitespaceWeight, mode, workers, callback);
+    executor.execute(task);
+    return task;
+  }
+
+  private final CharSequence text;
+  private final TextPaint paint;
+  private final int width;
+  private final boolean justifyLastLine;
+  private final float whitespaceWeight;
+  private final Mode mode;
+  private final ExecutorService workers;
+  private final Callback callback;
+
+  private volatile boolean cancelled;
+
+  private JustifyTask(CharSequence text, TextPaint paint, int width, boolean justifyLastLine,
+      float whitespaceWeight, Mode mode, ExecutorService workers, Callback callback) {
+    this.text = text;
+    this.paint = paint;
+    this.width = width;
+    this.justifyLastLine = justifyLastLine;
+    this.whitespaceWeight = whitespaceWeight;
+    this.mode = mode;
+    this.workers = workers;
+    this.callback = callback;
+  }
+
+  /**
+   * Stops the task as soon as possible. When called on the main thread the callback is
+   * guaranteed not to run afterwards.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  @Override public void run() {
+    if (cancelled) return;
+    SpanMetricsListener listener = SpanMetrics.listener;
+    long startTime = listener != null ? System.nanoTime() : 0;
+    SpannableStringBuilder builder;
+    JustifyPlanCache cache = JustifyPlanCache.installed;
+    JustifyPlan plan = cache != null //
+        ? cache.get(text, paint, width, justifyLastLine, whitespaceWeight, mode) //
+        : null;
+    if (plan != null) {
+      builder = JustifySpan.applyPlan(text, plan, paint, width, justifyLastLine, whitespaceWeight,
+          mode);
+    } else if (workers != null) {
+      builder = JustifySpan.justifyParagraphs(text, paint, width, justifyLastLine,
+          whitespaceWeight, mode, workers, this);
+    } else {
+      Layout layout =
+          new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, false);
+      builder = JustifySpan.justifyLines(layout, width, justifyLastLine, whitespaceWeight, mode,
+          paint, this);
+    }
+    if (builder == null) return;
+    if (plan == null && cache != null) {
+      cache.put(text, paint, width, justifyLastLine, whitespaceWeight, mode,
+          JustifySpan.capturePlan(builder));
+    }
+    if (listener != null) {
+      listener.onJustifyPass(JustifySpan.lineCount(builder), System.nanoTime() - startTime);
+    }
+
+    final CharSequence justified = new SpannedString(builder);
+    MAIN_THREAD.post(new Runnable() {
+      @Override public void run() {
+        if (!cancelled) callback.onJustified(justified);
+      }
+    });
+  }
+}
@@ -19,11 +19,14 @@ package com.chrisrenke.fixedspans;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.util.AttributeSet;
+import android.view.ViewTreeObserver;
 import android.widget.TextView;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 import static com.chrisrenke.fixedspans.JustifySpan.Mode;
 import static com.chrisrenke.fixedspans.JustifySpan.Mode.WHITESPACE_ONLY;
-import static com.chrisrenke.fixedspans.JustifySpan.justify;
+import static com.chrisrenke.fixedspans.JustifySpan.doJustify;
 import static com.example.fixedspans.R.styleable;
 
 /** Thin extension of {@link TextView} that automatically justifies its text. */
@@ -37,6 +40,38 @@ public class JustifyingTextView extends TextView {
   private boolean justifyLastLine;
   private float whitespaceWeight;
 
+  /** Earlier results for this text at other widths, e.g. before a rotation. */
+  private final JustifyMemo memo = new JustifyMemo();
+  private JustifyTask pendingTask;
+  private boolean applyingJustified;
+
+  // At most one justify pass is queued at a time; it reads the current settings when it runs.
+  private final ViewTreeObserver.OnGlobalLayoutListener justifyPass =
+      new ViewTreeObserver.OnGlobalLayoutListener() {
+        @Override public void onGlobalLayout() {
+          getViewTreeObserver().removeGlobalOnLayoutListener(this);
+          justifyPassScheduled = false;
+          justifyPassCount++;
+          int start = editStart;
+          int end = editEnd;
+          editStart = -1;
+          editEnd = 0;
+          // The pass sets our text; that must not queue yet another pass.
+          applyingJustified = true;
+          try {
+            doJustify(JustifyingTextView.this, justifyLastLine, whitespaceWeight, mode, memo,
+                start, end);
+          } finally {
+            applyingJustified = false;
+          }
+        }
+      };
+  private boolean justifyPassScheduled;
+  private int justifyPassCount;
+  // Chars edited since the last pass, which rebuilds only the lines around them if it can.
+  private int editStart = -1;
+  private int editEnd;
+
   public JustifyingTextView(Context context) {
     this(context, null);
   }
@@ -52,33 +87,99 @@ public class JustifyingTextView extends TextView {
     mode = getEnum(a, styleable.JustifyingTextView_justifyMode, Mode.values(), DEF_MODE);
     justifyLastLine = getBoolean(a, styleable.JustifyingTextView_justifyLastLine, DEF_LAST_LINE);
     a.recycle();
-    justify(this, justifyLastLine, whitespaceWeight, mode);
+    requestJustify();
+  }
+
+  /**
+   * Breaks and justifies {@code text} on {@code executor} and shows it in a single step once it is
+   * ready. Until then the current text stays on screen. The work is cancelled if the text, text
+   * size or width of this view changes before it finishes.
+   */
+  public void setTextAsync(CharSequence text, Executor executor) {
+    setTextAsync(text, executor, null);
+  }
+
+  /**
+   * Like {@link #setTextAsync(CharSequence, Executor)}, but long texts are justified paragraph by
+   * paragraph in parallel on {@code workers}, which must not be the same bounded pool as
+   * {@code executor}.
+   */
+  public void setTextAsync(CharSequence text, Executor executor, ExecutorService workers) {
+    cancelPendingTask();
+    int width = getWidth() - getPaddingLeft() - getPaddingRight();
+    if (width <= 0) {
+      // Not laid out yet; the regular pass will justify once there is a width.
+      setText(text);
+      return;
+    }
+    pendingTask = JustifyTask.submitParallel(text, getPaint(), width, justifyLastLine,
+        whitespaceWeight, mode, executor, workers, new JustifyTask.Callback() {
+          @Override public void onJustified(CharSequence justified) {
+            pendingTask = null;
+            applyingJustified = true;
+            try {
+              setText(justified);
+            } finally {
+              applyingJustified = false;
+            }
+          }
+        });
   }
 
   @Override
   protected void onTextChanged(CharSequence text, int start, int lengthBefore, int lengthAfter) {
     super.onTextChanged(text, start, lengthBefore, lengthAfter);
-     justify(this, justifyLastLine, whitespaceWeight, mode);
+    if (applyingJustified) return;
+    // TextView's constructor sets the text before our fields are initialized.
+    if (justifyPass != null) {
+      editStart = editStart < 0 ? start : Math.min(editStart, start);
+      editEnd = Math.max(editEnd, start + lengthAfter);
+    }
+    cancelPendingTask();
+    requestJustify();
   }
 
   @Override protected void onSizeChanged(int w, int h, int oldw, int oldh) {
     super.onSizeChanged(w, h, oldw, oldh);
-    justify(this, justifyLastLine, whitespaceWeight, mode);
+    cancelPendingTask();
+    requestJustify();
   }
 
   @Override public void setTextSize(float size) {
     super.setTextSize(size);
-    justify(this, justifyLastLine, whitespaceWeight, mode);
+    cancelPendingTask();
+    requestJustify();
   }
 
   @Override public void setTextSize(int unit, float size) {
     super.setTextSize(unit, size);
-    justify(this, justifyLastLine, whitespaceWeight, mode);
+    cancelPendingTask();
+    requestJustify();
   }
 
   @Override public void setTextAppearance(Context context, int resid) {
     super.setTextAppearance(context, resid);
-    justify(this, justifyLastLine, whitespaceWeight, mode);
+    cancelPendingTask();
+    requestJustify();
+  }
+
+  /** Number of justify passes this view has run, for asserting that redundant ones coalesce. */
+  public int getJustifyPassCount() {
+    return justifyPassCount;
+  }
+
+  /** Queues a justify pass for the next layout unless one is already waiting. */
+  private void requestJustify() {
+    // TextView's constructor sets the text before our fields exist; ours queues the first pass.
+    if (justifyPass == null || justifyPassScheduled) return;
+    justifyPassScheduled = true;
+    getViewTreeObserver().addOnGlobalLayoutListener(justifyPass);
+  }
+
+  private void cancelPendingTask() {
+    if (pendingTask == null) return;
+    pendingTask.cancel();
+    pendingTask = null;
   }
 
   private static <E extends Enum<E>> E getEnum(TypedArray attributes, int styleableIndex,
@@ -17,6 +17,7 @@
 package com.chrisrenke.fixedspans;
 
 import android.text.Editable;
+import android.text.Spanned;
 import android.text.TextWatcher;
 import android.widget.TextView;
 
@@ -41,7 +42,9 @@ public class JustifyingTextWatcher implements TextWatcher {
   private final boolean justifyLastLine;
   private final Mode mode;
 
-  private boolean ignoreNextPass;
+  private boolean rejustifying;
+  private int editStart = -1;
+  private int editEnd;
 
   private JustifyingTextWatcher(TextView view, boolean justifyLastLine, float whitespaceWeight,
       Mode mode) {
@@ -55,14 +58,44 @@ public class JustifyingTextWatcher implements TextWatcher {
   }
 
   @Override public void onTextChanged(CharSequence s, int start, int before, int count) {
+    if (rejustifying) return;
+    editStart = editStart < 0 ? start : Math.min(editStart, start);
+    editEnd = Math.max(editEnd, start + count);
   }
 
   @Override public void afterTextChanged(Editable s) {
-    if (ignoreNextPass || s.toString().length() == 0) {
-      ignoreNextPass = false;
+    if (rejustifying) return;
+    int start = editStart;
+    int end = editEnd;
+    editStart = -1;
+    editEnd = 0;
+
+    if (s.length() == 0) return;
+
+    // This is the output of our own full pass being set on the view.
+    int width = view.getWidth() - view.getPaddingLeft() - view.getPaddingRight();
+    if (JustifySpan.isJustified(s, view.getPaint(), width, justifyLastLine, whitespaceWeight,
+        mode)) {
+      return;
+    }
+
+    // Text that was never justified, or a view that was never laid out, needs a full pass.
+    if (start < 0 || width <= 0 || !hasJustifySpans(s)) {
+      justify(view, justifyLastLine, whitespaceWeight, mode);
       return;
     }
-    ignoreNextPass = true;
-    justify(view, justifyLastLine, whitespaceWeight, mode);
+
+    rejustifying = true;
+    try {
+      JustifySpan.rejustify(s, start, end, view.getPaint(), width, justifyLastLine,
+          whitespaceWeight, mode);
+    } finally {
+      rejustifying = false;
+    }
+  }
+
+  /** Checks for any {@link JustifySpan} without allocating an array of all of them. */
+  private static boolean hasJustifySpans(Spanned text) {
+    return text.nextSpanTransition(-1, text.length(), JustifySpan.class) < text.length();
   }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.graphics.Paint;
+
+/**
+ * Measures runs with a {@link LineLayout} and {@link PaintGlyphMetrics} of the calling thread's
+ * own, so that a span can be measured by a {@link JustifyTask} while it is drawn on the main
+ * thread.
+ */
+abstract class LineMeasurer {
+  private final ThreadLocal<State> states = new ThreadLocal<State>() {
+    @Override protected State initialValue() {
+      return new State(newLayout());
+    }
+  };
+
+  /** Creates the layout for one thread. */
+  abstract LineLayout newLayout();
+
+  int measure(Paint paint, CharSequence text, int start, int end) {
+    State state = states.get();
+    return state.layout.measure(state.metrics.set(paint), text, start, end);
+  }
+
+  private static final class State {
+    final LineLayout layout;
+    final PaintGlyphMetrics metrics = new PaintGlyphMetrics();
+
+    State(LineLayout layout) {
+      this.layout = layout;
+    }
+  }
+}
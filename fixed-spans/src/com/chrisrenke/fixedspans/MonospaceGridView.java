@@ -0,0 +1,199 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.text.TextPaint;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import static com.chrisrenke.fixedspans.MonospaceLayout.REFERENCE_CHARACTERS;
+
+/**
+ * Multi-line counterpart of {@link MonospaceSpan}: text is drawn on a fixed grid of cells as wide
+ * as the widest of 'M' and 'W', wrapping at as many columns as fit the width. Only the rows
+ * inside the clip are drawn, and mapping between offsets and pixels is arithmetic, so hit testing
+ * costs the same on the first row as on the last. Text is drawn in the view's paint; spans are
+ * ignored.
+ *
+ * <p>The view is as tall as its text, so it is meant to sit in a scrolling parent. A hardware
+ * accelerated canvas clips to the whole view, so rows are also limited to the part on screen plus
+ * one screen either side, and the view redraws once scrolling leaves that range.
+ */
+public class MonospaceGridView extends View {
+  private final TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+  private final Paint.FontMetricsInt fontMetrics = new Paint.FontMetricsInt();
+  private final MonospaceLayout layout = new MonospaceLayout(REFERENCE_CHARACTERS);
+  private final PaintGlyphMetrics metrics = new PaintGlyphMetrics();
+  private final CanvasGlyphSink sink = new CanvasGlyphSink();
+  private final Rect clip = new Rect();
+  private final Rect visible = new Rect();
+  private final ViewTreeObserver.OnScrollChangedListener scrollListener =
+      new ViewTreeObserver.OnScrollChangedListener() {
+        @Override public void onScrollChanged() {
+          if (grid == null || !getLocalVisibleRect(visible)) return;
+          if (visible.top < drawnTop || visible.bottom > drawnBottom) invalidate();
+        }
+      };
+
+  private CharSequence text = "";
+  private MonospaceGrid grid;
+  private float cellWidth;
+  private int rowHeight;
+  /** Vertical range the last draw covered, in view coordinates. */
+  private int drawnTop;
+  private int drawnBottom;
+
+  public MonospaceGridView(Context context) {
+    this(context, null);
+  }
+
+  public MonospaceGridView(Context context, AttributeSet attrs) {
+    this(context, attrs, 0);
+  }
+
+  public MonospaceGridView(Context context, AttributeSet attrs, int defStyle) {
+    super(context, attrs, defStyle);
+    paint.setTypeface(Typeface.MONOSPACE);
+    paint.setTextSize(14 * context.getResources().getDisplayMetrics().scaledDensity);
+    updateCell();
+  }
+
+  public CharSequence getText() {
+    return text;
+  }
+
+  public void setText(CharSequence text) {
+    this.text = text != null ? text : "";
+    grid = null;
+    requestLayout();
+    invalidate();
+  }
+
+  public TextPaint getPaint() {
+    return paint;
+  }
+
+  /** Sets the text size in pixels. */
+  public void setTextSize(float size) {
+    paint.setTextSize(size);
+    paintChanged();
+  }
+
+  public void setTypeface(Typeface typeface) {
+    paint.setTypeface(typeface);
+    paintChanged();
+  }
+
+  public void setTextColor(int color) {
+    paint.setColor(color);
+    invalidate();
+  }
+
+  /** The grid the text is currently laid out on, or null before the first measure. */
+  public MonospaceGrid getGrid() {
+    return grid;
+  }
+
+  public float getCellWidth() {
+    return cellWidth;
+  }
+
+  public int getRowHeight() {
+    return rowHeight;
+  }
+
+  /** Top of {@code row} in view coordinates. */
+  public int getRowTop(int row) {
+    return getPaddingTop() + row * rowHeight;
+  }
+
+  /** Left edge of the cell at {@code offset} in view coordinates; -1 before measuring. */
+  public float getCellLeft(int offset) {
+    if (grid == null) return -1;
+    return getPaddingLeft() + grid.columnOf(offset) * cellWidth;
+  }
+
+  /** Offset closest to the point {@code (x, y)} in view coordinates; -1 before measuring. */
+  public int getOffsetForPosition(float x, float y) {
+    if (grid == null) return -1;
+    int row = (int) Math.floor((y - getPaddingTop()) / rowHeight);
+    int column = Math.round((x - getPaddingLeft()) / cellWidth);
+    return grid.offsetAt(row, column);
+  }
+
+  @Override protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+    int horizontalPadding = getPaddingLeft() + getPaddingRight();
+    int columns = Integer.MAX_VALUE;
+    if (MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.UNSPECIFIED) {
+      columns = (int) ((MeasureSpec.getSize(widthMeasureSpec) - horizontalPadding) / cellWidth);
+    }
+    columns = Math.max(columns, 1);
+    if (grid == null || grid.columns() != columns) grid = new MonospaceGrid(text, columns);
+
+    int width = (int) Math.ceil(grid.widestRow() * cellWidth) + horizontalPadding;
+    int height = grid.rowCount() * rowHeight + getPaddingTop() + getPaddingBottom();
+    setMeasuredDimension(resolveSize(width, widthMeasureSpec),
+        resolveSize(height, heightMeasureSpec));
+  }
+
+  @Override protected void onAttachedToWindow() {
+    super.onAttachedToWindow();
+    getViewTreeObserver().addOnScrollChangedListener(scrollListener);
+  }
+
+  @Override protected void onDetachedFromWindow() {
+    getViewTreeObserver().removeOnScrollChangedListener(scrollListener);
+    super.onDetachedFromWindow();
+  }
+
+  @Override protected void onDraw(Canvas canvas) {
+    drawnTop = drawnBottom = 0;
+    if (grid == null || !canvas.getClipBounds(clip) || !getLocalVisibleRect(visible)) return;
+    drawnTop = visible.top - visible.height();
+    drawnBottom = visible.bottom + visible.height();
+    int top = Math.max(clip.top, drawnTop);
+    int bottom = Math.min(clip.bottom, drawnBottom);
+    int firstRow = Math.max(0, (top - getPaddingTop()) / rowHeight);
+    int lastRow = Math.min(grid.rowCount() - 1, (bottom - getPaddingTop()) / rowHeight);
+    metrics.set(paint);
+    for (int row = firstRow; row <= lastRow; row++) {
+      int start = grid.rowStart(row);
+      int end = grid.rowEnd(row);
+      if (start == end) continue;
+      sink.set(canvas, paint, getRowTop(row) - fontMetrics.ascent);
+      layout.draw(metrics, sink, text, start, end, getPaddingLeft());
+    }
+  }
+
+  private void paintChanged() {
+    updateCell();
+    grid = null;
+    requestLayout();
+    invalidate();
+  }
+
+  private void updateCell() {
+    rowHeight = paint.getFontMetricsInt(fontMetrics);
+    cellWidth = layout.cellWidth(metrics.set(paint), text, 0, 0);
+  }
+}
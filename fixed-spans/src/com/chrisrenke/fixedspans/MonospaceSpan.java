@@ -20,56 +20,77 @@ import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.text.style.ReplacementSpan;
 
-import static java.lang.Math.ceil;
+import static com.chrisrenke.fixedspans.MonospaceLayout.REFERENCE_CHARACTERS;
 
-/** A {@link ReplacementSpan} that monospaces single-line text. */
+/**
+ * A {@link ReplacementSpan} that monospaces single-line text. Use {@link MonospaceGridView} for
+ * text that wraps.
+ */
 public class MonospaceSpan extends ReplacementSpan {
-
-  private static final String REFERENCE_CHARACTERS = "MW";
-
   private final String relativeCharacters;
+  private final MonospaceLayout layout;
+  private final PaintGlyphMetrics metrics = new PaintGlyphMetrics();
+  private final CanvasGlyphSink sink = new CanvasGlyphSink();
+  private final LineMeasurer measurer = new LineMeasurer() {
+    @Override LineLayout newLayout() {
+      return new MonospaceLayout(relativeCharacters);
+    }
+  };
+  private AtlasGlyphSink atlasSink;
 
   /**
    * Set the {@code relativeMonospace} flag to true to monospace based on the widest character
    * in the content string; false will base the monospace on the widest width of 'M' or 'W'.
    */
   public MonospaceSpan(boolean relativeMonospace) {
-    this.relativeCharacters = relativeMonospace ? null : REFERENCE_CHARACTERS;
+    this(relativeMonospace ? null : REFERENCE_CHARACTERS);
   }
 
   /** Use the widest character from {@code relativeCharacters} to determine monospace width. */
   public MonospaceSpan(String relativeCharacters) {
     this.relativeCharacters = relativeCharacters;
+    this.layout = new MonospaceLayout(relativeCharacters);
   }
 
   public MonospaceSpan() {
-    this.relativeCharacters = REFERENCE_CHARACTERS;
+    this(REFERENCE_CHARACTERS);
+  }
+
+  /** The characters cells are as wide as the widest of, or null for the widest of the run. */
+  String relativeCharacters() {
+    return relativeCharacters;
   }
 
   @Override
   public int getSize(Paint paint, CharSequence text, int start, int end, Paint.FontMetricsInt fm) {
+    SpanMetricsListener listener = SpanMetrics.listener;
+    if (listener != null) listener.onGetSize(this);
     if (fm != null) paint.getFontMetricsInt(fm);
-    return (int) ceil((end - start) * getMonoWidth(paint, text.subSequence(start, end)));
+    return measurer.measure(paint, text, start, end);
+  }
+
+  /**
+   * Draws characters as bitmaps from an atlas rasterized once per paint configuration, rather
+   * than through the text pipeline, for text redrawn every frame such as clocks and tickers.
+   * The atlas holds the characters this span has drawn, so it suits text from a small set of
+   * characters. Glyphs snap to whole pixels. Text with a shadow, underline or strike-through, or
+   * drawn with a paint not aligned left, is still drawn as text.
+   */
+  public void setAtlasEnabled(boolean enabled) {
+    atlasSink = enabled ? new AtlasGlyphSink() : null;
   }
 
   @Override
   public void draw(Canvas canvas, CharSequence text, int start, int end, float x, int top, int y,
       int bottom, Paint paint) {
-    CharSequence actualText = text.subSequence(start, end);
-    float monowidth = getMonoWidth(paint, actualText);
-    for (int i = 0; i < actualText.length(); i++) {
-      float textWidth = paint.measureText(actualText, i, i + 1);
-      float halfFreeSpace = (textWidth - monowidth) / 2f;
-      canvas.drawText(actualText, i, i + 1, x + (monowidth * i) - halfFreeSpace, y, paint);
-    }
-  }
-
-  private float getMonoWidth(Paint paint, CharSequence text) {
-    text = relativeCharacters == null ? text : relativeCharacters;
-    float maxWidth = 0;
-    for (int i = 0; i < text.length(); i++) {
-      maxWidth = Math.max(paint.measureText(text, i, i + 1), maxWidth);
+    SpanMetricsListener listener = SpanMetrics.listener;
+    if (listener != null) listener.onDraw(this);
+    metrics.set(paint);
+    if (atlasSink != null && atlasSink.set(canvas, paint, y, metrics.key(), text, start, end)) {
+      layout.draw(metrics, atlasSink, text, start, end, x);
+      atlasSink.release();
+    } else {
+      layout.draw(metrics, sink.set(canvas, paint, y), text, start, end, x);
     }
-    return maxWidth;
   }
 }
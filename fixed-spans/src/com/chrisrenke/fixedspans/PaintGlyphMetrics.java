@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.graphics.Paint;
+
+/**
+ * {@link GlyphMetrics} backed by a {@link Paint} and its {@link GlyphMetricsCache} entry. Spans
+ * keep one instance and point it at the paint of every call, so measuring does not allocate.
+ */
+final class PaintGlyphMetrics implements GlyphMetrics {
+  private Paint paint;
+  private GlyphMetricsCache.Metrics metrics;
+
+  PaintGlyphMetrics set(Paint paint) {
+    this.paint = paint;
+    this.metrics = GlyphMetricsCache.forPaint(paint);
+    return this;
+  }
+
+  /** Identifies the paint's text metrics: equal for any two paints that measure the same. */
+  GlyphMetricsCache.Metrics key() {
+    return metrics;
+  }
+
+  @Override public float advance(CharSequence text, int index) {
+    return metrics.advance(paint, text, index);
+  }
+
+  @Override public float measure(CharSequence text, int start, int end) {
+    SpanMetricsListener listener = SpanMetrics.listener;
+    if (listener != null) listener.onMeasureText();
+    return paint.measureText(text, start, end);
+  }
+
+  @Override public float maxAdvance(String characters) {
+    return metrics.maxAdvance(paint, characters);
+  }
+
+  @Override public void getAdvances(CharSequence text, int start, int end, float[] advances) {
+    SpanMetricsListener listener = SpanMetrics.listener;
+    if (listener != null) listener.onMeasureText();
+    paint.getTextWidths(text, start, end, advances);
+  }
+}
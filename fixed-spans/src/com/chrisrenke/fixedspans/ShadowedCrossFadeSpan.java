@@ -16,31 +16,20 @@
 
 package com.chrisrenke.fixedspans;
 
-import android.graphics.Color;
 import android.text.TextPaint;
 import android.text.style.CharacterStyle;
 
-import static android.graphics.Color.argb;
-import static android.graphics.Color.blue;
-import static android.graphics.Color.green;
-import static android.graphics.Color.red;
-
-public class ShadowedCrossFadeSpan extends CharacterStyle {
+/**
+ * Fades text and its shadow between two sets of colors. Drive it with a {@link SpanAnimator} so
+ * that a new parameter only costs a redraw.
+ */
+public class ShadowedCrossFadeSpan extends CharacterStyle implements AnimatableSpan {
 
-  private final int initialTextColor;
-  private final int endTextColor;
-  private final int initialShadowColor;
-  private final int endShadowColor;
-  private final int initialShadowOpacity;
-  private final int endShadowOpacity;
+  private final CrossFade fade;
   private final int shadowOffsetX;
   private final int shadowOffsetY;
   private final int shadowRadius;
 
-  private int currentColor;
-  private int currentShadowColor;
-  private int currentShadowOpacity;
-
   public ShadowedCrossFadeSpan(int initialTextColor, int endTextColor, int shadowColor,
       int initialShadowOpacity, int endShadowOpacity, int shadowOffsetX, int shadowOffsetY,
       int shadowRadius) {
@@ -51,37 +40,19 @@ public class ShadowedCrossFadeSpan extends CharacterStyle {
   public ShadowedCrossFadeSpan(int initialTextColor, int endTextColor, int initialShadowColor,
       int endShadowColor, int initialShadowOpacity, int endShadowOpacity, int shadowOffsetX,
       int shadowOffsetY, int shadowRadius) {
-    this.initialTextColor = initialTextColor;
-    this.endTextColor = endTextColor;
-    this.initialShadowColor = initialShadowColor;
-    this.endShadowColor = endShadowColor;
-    this.initialShadowOpacity = initialShadowOpacity;
-    this.endShadowOpacity = endShadowOpacity;
+    this.fade = new CrossFade(initialTextColor, endTextColor, initialShadowColor, endShadowColor,
+        initialShadowOpacity, endShadowOpacity);
     this.shadowOffsetX = shadowOffsetX;
     this.shadowOffsetY = shadowOffsetY;
     this.shadowRadius = shadowRadius;
-
-    // Set the span to the initial state.
-    setParameter(0);
   }
 
   @Override public void updateDrawState(TextPaint tp) {
-    tp.setColor(currentColor);
-    tp.setShadowLayer(shadowRadius, shadowOffsetX, shadowOffsetY, argb(currentShadowOpacity, //
-        red(currentShadowColor), green(currentShadowColor), blue(currentShadowColor)));
-  }
-
-  public void setParameter(float t) {
-    currentShadowOpacity = param(initialShadowOpacity, endShadowOpacity, t);
-    currentShadowColor = Color.rgb(param(red(initialShadowColor), red(endShadowColor), t), //
-        param(green(initialShadowColor), green(endShadowColor), t), //
-        param(blue(initialShadowColor), blue(endShadowColor), t));
-    currentColor = Color.rgb(param(red(initialTextColor), red(endTextColor), t), //
-        param(green(initialTextColor), green(endTextColor), t), //
-        param(blue(initialTextColor), blue(endTextColor), t));
+    tp.setColor(fade.textColor());
+    tp.setShadowLayer(shadowRadius, shadowOffsetX, shadowOffsetY, fade.shadowColor());
   }
 
-  private static int param(int min, int max, float t) {
-    return (int) ((max - min) * t) + min;
+  @Override public void setParameter(float t) {
+    fade.setParameter(t);
   }
 }
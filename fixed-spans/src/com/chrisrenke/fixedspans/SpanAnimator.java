@@ -0,0 +1,168 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import android.view.View;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drives the parameter of an {@link AnimatableSpan} and redraws every view showing it. Such spans
+ * only change paint state, so their views are invalidated instead of being handed new text, which
+ * skips measuring and line breaking entirely. Frames are timed by the display's vsync from Jelly
+ * Bean on and do not allocate. Views are held weakly, so a running animation does not keep a
+ * finished activity alive. Must be used on the main thread.
+ */
+public final class SpanAnimator implements Runnable {
+  /** Frame interval before Jelly Bean, where there is no {@link Choreographer}. */
+  private static final long FRAME_DELAY = 16;
+
+  private final AnimatableSpan span;
+  private final List<WeakReference<View>> views = new ArrayList<WeakReference<View>>();
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  /** Only created from Jelly Bean on, as older releases cannot load it. */
+  private VsyncFrames vsyncFrames;
+
+  private float parameter;
+  private float from;
+  private float to;
+  private long startTime;
+  private long duration;
+  private boolean running;
+
+  public SpanAnimator(AnimatableSpan span) {
+    this.span = span;
+  }
+
+  /** Redraws {@code view} whenever the parameter changes. The span must already be in its text. */
+  public void addView(View view) {
+    if (indexOf(view) < 0) views.add(new WeakReference<View>(view));
+  }
+
+  public void removeView(View view) {
+    int index = indexOf(view);
+    if (index >= 0) views.remove(index);
+  }
+
+  public float getParameter() {
+    return parameter;
+  }
+
+  /** Jumps to {@code t}, stopping any running animation. */
+  public void setParameter(float t) {
+    cancel();
+    apply(t);
+  }
+
+  /** Animates linearly from the current parameter to {@code t}. */
+  public void animateTo(float t, long durationMillis) {
+    handler.removeCallbacks(this);
+    from = parameter;
+    to = t;
+    startTime = SystemClock.uptimeMillis();
+    duration = Math.max(durationMillis, 1);
+    running = true;
+    scheduleFrame();
+  }
+
+  public void cancel() {
+    running = false;
+    handler.removeCallbacks(this);
+    if (vsyncFrames != null) vsyncFrames.cancel();
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override public void run() {
+    frame(SystemClock.uptimeMillis());
+  }
+
+  /** Advances to {@code frameTime}, in the {@link SystemClock#uptimeMillis} time base. */
+  private void frame(long frameTime) {
+    if (!running) return;
+    // A vsync can predate the start of an animation begun during its frame.
+    float fraction = Math.max(0f, Math.min(1f, (frameTime - startTime) / (float) duration));
+    apply(from + (to - from) * fraction);
+    if (fraction < 1f) {
+      scheduleFrame();
+    } else {
+      running = false;
+    }
+  }
+
+  private void scheduleFrame() {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+      if (vsyncFrames == null) vsyncFrames = new VsyncFrames(this);
+      vsyncFrames.post();
+    } else {
+      handler.removeCallbacks(this);
+      handler.postDelayed(this, FRAME_DELAY);
+    }
+  }
+
+  private void apply(float t) {
+    parameter = t;
+    span.setParameter(t);
+    for (int i = views.size() - 1; i >= 0; i--) {
+      View view = views.get(i).get();
+      if (view == null) {
+        views.remove(i);
+      } else {
+        view.invalidate();
+      }
+    }
+  }
+
+  private int indexOf(View view) {
+    for (int i = 0, count = views.size(); i < count; i++) {
+      if (views.get(i).get() == view) return i;
+    }
+    return -1;
+  }
+
+  /** Runs the animator once per frame, in step with the display and timed by its vsync. */
+  private static final class VsyncFrames implements Choreographer.FrameCallback {
+    private final SpanAnimator animator;
+
+    VsyncFrames(SpanAnimator animator) {
+      this.animator = animator;
+    }
+
+    void post() {
+      Choreographer choreographer = Choreographer.getInstance();
+      choreographer.removeFrameCallback(this);
+      choreographer.postFrameCallback(this);
+    }
+
+    void cancel() {
+      Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override public void doFrame(long frameTimeNanos) {
+      // Frame times share the uptime clock, in nanoseconds.
+      animator.frame(frameTimeNanos / 1000000);
+    }
+  }
+}
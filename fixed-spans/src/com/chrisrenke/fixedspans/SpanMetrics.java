@@ -0,0 +1,37 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+/**
+ * Where the {@link SpanMetricsListener} is installed. With no listener installed, which is the
+ * default, every event costs a single field read.
+ */
+public final class SpanMetrics {
+  static volatile SpanMetricsListener listener;
+
+  private SpanMetrics() {
+  }
+
+  /** Installs {@code listener}, replacing any other; null uninstalls it. */
+  public static void setListener(SpanMetricsListener listener) {
+    SpanMetrics.listener = listener;
+  }
+
+  public static SpanMetricsListener getListener() {
+    return listener;
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.text.style.ReplacementSpan;
+
+/**
+ * Receives events about the work the spans do, once installed with
+ * {@link SpanMetrics#setListener}. Events may arrive from background threads, e.g. from a
+ * {@link JustifyTask}, and are delivered synchronously, so implementations must be thread-safe
+ * and quick.
+ */
+public interface SpanMetricsListener {
+  /** {@code span} was asked for its size by a layout. */
+  void onGetSize(ReplacementSpan span);
+
+  /** {@code span} was drawn. */
+  void onDraw(ReplacementSpan span);
+
+  /**
+   * The paint was asked to measure text: on a glyph metrics cache miss, or for a run the cache
+   * does not hold, such as a whole line being justified.
+   */
+  void onMeasureText();
+
+  /** A lookup in the glyph metrics cache was answered from the cache. */
+  void onCacheHit();
+
+  /** A lookup in the glyph metrics cache had to measure. */
+  void onCacheMiss();
+
+  /**
+   * A text view's text was justified, {@code lineCount} lines in {@code durationNanos}. After an
+   * edit only the lines rebuilt are counted.
+   */
+  void onJustifyPass(int lineCount, long durationNanos);
+}
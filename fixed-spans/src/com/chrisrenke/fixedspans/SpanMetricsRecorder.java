@@ -0,0 +1,155 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.text.style.ReplacementSpan;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link SpanMetricsListener} that adds every event up, per span type where it applies. Meant to
+ * be installed in debug builds and {@link #dump dumped} from a debug screen.
+ */
+public final class SpanMetricsRecorder implements SpanMetricsListener {
+  private final ConcurrentMap<Class<?>, AtomicLong> getSizeCounts =
+      new ConcurrentHashMap<Class<?>, AtomicLong>();
+  private final ConcurrentMap<Class<?>, AtomicLong> drawCounts =
+      new ConcurrentHashMap<Class<?>, AtomicLong>();
+  private final AtomicLong measureTextCount = new AtomicLong();
+  private final AtomicLong cacheHitCount = new AtomicLong();
+  private final AtomicLong cacheMissCount = new AtomicLong();
+  private final AtomicLong justifyPassCount = new AtomicLong();
+  private final AtomicLong justifiedLineCount = new AtomicLong();
+  private final AtomicLong justifyNanos = new AtomicLong();
+
+  @Override public void onGetSize(ReplacementSpan span) {
+    counter(getSizeCounts, span.getClass()).incrementAndGet();
+  }
+
+  @Override public void onDraw(ReplacementSpan span) {
+    counter(drawCounts, span.getClass()).incrementAndGet();
+  }
+
+  @Override public void onMeasureText() {
+    measureTextCount.incrementAndGet();
+  }
+
+  @Override public void onCacheHit() {
+    cacheHitCount.incrementAndGet();
+  }
+
+  @Override public void onCacheMiss() {
+    cacheMissCount.incrementAndGet();
+  }
+
+  @Override public void onJustifyPass(int lineCount, long durationNanos) {
+    justifyPassCount.incrementAndGet();
+    justifiedLineCount.addAndGet(lineCount);
+    justifyNanos.addAndGet(durationNanos);
+  }
+
+  public long getSizeCount(Class<? extends ReplacementSpan> spanType) {
+    AtomicLong count = getSizeCounts.get(spanType);
+    return count != null ? count.get() : 0;
+  }
+
+  public long drawCount(Class<? extends ReplacementSpan> spanType) {
+    AtomicLong count = drawCounts.get(spanType);
+    return count != null ? count.get() : 0;
+  }
+
+  public long measureTextCount() {
+    return measureTextCount.get();
+  }
+
+  public long cacheHitCount() {
+    return cacheHitCount.get();
+  }
+
+  public long cacheMissCount() {
+    return cacheMissCount.get();
+  }
+
+  public long justifyPassCount() {
+    return justifyPassCount.get();
+  }
+
+  public long justifiedLineCount() {
+    return justifiedLineCount.get();
+  }
+
+  public long justifyNanos() {
+    return justifyNanos.get();
+  }
+
+  /** Zeroes every count. */
+  public void reset() {
+    getSizeCounts.clear();
+    drawCounts.clear();
+    measureTextCount.set(0);
+    cacheHitCount.set(0);
+    cacheMissCount.set(0);
+    justifyPassCount.set(0);
+    justifiedLineCount.set(0);
+    justifyNanos.set(0);
+  }
+
+  /** Every count as human readable lines. */
+  public String dump() {
+    StringBuilder dump = new StringBuilder();
+    List<Class<?>> spanTypes = new ArrayList<Class<?>>(getSizeCounts.keySet());
+    for (Class<?> spanType : drawCounts.keySet()) {
+      if (!spanTypes.contains(spanType)) spanTypes.add(spanType);
+    }
+    Collections.sort(spanTypes, new Comparator<Class<?>>() {
+      @Override public int compare(Class<?> a, Class<?> b) {
+        return a.getName().compareTo(b.getName());
+      }
+    });
+    for (Class<?> spanType : spanTypes) {
+      AtomicLong getSizes = getSizeCounts.get(spanType);
+      AtomicLong draws = drawCounts.get(spanType);
+      dump.append(spanType.getSimpleName())
+          .append(": getSize ").append(getSizes != null ? getSizes.get() : 0)
+          .append(", draw ").append(draws != null ? draws.get() : 0)
+          .append('\n');
+    }
+    dump.append("measureText: ").append(measureTextCount.get()).append('\n');
+    dump.append("metrics cache: ").append(cacheHitCount.get()).append(" hits, ")
+        .append(cacheMissCount.get()).append(" misses\n");
+    dump.append("justify: ").append(justifyPassCount.get()).append(" passes, ")
+        .append(justifiedLineCount.get()).append(" lines, ")
+        .append(String.format(Locale.US, "%.1f ms", justifyNanos.get() / 1e6)).append('\n');
+    return dump.toString();
+  }
+
+  private static AtomicLong counter(ConcurrentMap<Class<?>, AtomicLong> counts, Class<?> type) {
+    AtomicLong count = counts.get(type);
+    if (count == null) {
+      count = new AtomicLong();
+      AtomicLong existing = counts.putIfAbsent(type, count);
+      if (existing != null) count = existing;
+    }
+    return count;
+  }
+}
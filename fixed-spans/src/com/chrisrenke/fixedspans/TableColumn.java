@@ -0,0 +1,164 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.ReplacementSpan;
+import android.view.View;
+import android.widget.TextView;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import static com.chrisrenke.fixedspans.TableColumnLayout.Alignment;
+
+/**
+ * A table column spanning many rows, each usually its own {@link TextView}. Cells are tabular
+ * like {@link TabularSpan}, but share one width so that they line up on the decimal separator or
+ * on the right edge across rows. Each cell is measured once when it is laid out, against widths
+ * computed once per paint for the whole column, and drawn from that measurement. When a cell
+ * widens the column, the other rows are laid out again once the current layout pass is over. All
+ * cells must be drawn with the same paint, on the main thread.
+ */
+public final class TableColumn {
+  private final TableColumnLayout layout;
+  private final PaintGlyphMetrics metrics = new PaintGlyphMetrics();
+  private final CanvasGlyphSink sink = new CanvasGlyphSink();
+  private final Set<View> views = Collections.newSetFromMap(new WeakHashMap<View, Boolean>());
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Runnable relayoutViews = new Runnable() {
+    @Override public void run() {
+      relayoutPending = false;
+      for (View view : views) {
+        view.requestLayout();
+      }
+    }
+  };
+  private Object metricsKey;
+  private boolean relayoutPending;
+
+  /** Aligns cells on {@code '.'}. */
+  public static TableColumn decimal() {
+    return new TableColumn(TabularSpan.DEFAULT_WIDTH_CLASSES, Alignment.DECIMAL, '.');
+  }
+
+  public static TableColumn right() {
+    return new TableColumn(TabularSpan.DEFAULT_WIDTH_CLASSES, Alignment.RIGHT, '.');
+  }
+
+  public TableColumn(WidthClassTable widthClasses, Alignment alignment, char decimalSeparator) {
+    layout = new TableColumnLayout(new TabularLayout(widthClasses), alignment, decimalSeparator);
+  }
+
+  /** A span for one cell. The view showing it should be {@link #attach attached}. */
+  public ReplacementSpan newSpan() {
+    return new CellSpan(this);
+  }
+
+  /** Lays {@code view} out again whenever the column gets wider. */
+  public void attach(View view) {
+    views.add(view);
+  }
+
+  /** Makes all of {@code view}'s text one cell of this column, keeping its other spans. */
+  public void apply(TextView view) {
+    SpannableString text = new SpannableString(view.getText());
+    text.setSpan(newSpan(), 0, text.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    attach(view);
+    view.setText(text);
+  }
+
+  /** Shrinks the column back to fit only the cells measured from now on. */
+  public void reset() {
+    layout.reset();
+    relayout();
+  }
+
+  private int measure(CellSpan cell, Paint paint, CharSequence text, int start, int end) {
+    metrics.set(paint);
+    if (metrics.key() != metricsKey) {
+      metricsKey = metrics.key();
+      layout.reset();
+    }
+    fit(cell, text, start, end);
+    return layout.width();
+  }
+
+  private void draw(CellSpan cell, Canvas canvas, CharSequence text, int start, int end, float x,
+      int y, Paint paint) {
+    metrics.set(paint);
+    // The paint changed since the cells were measured, so the column is refitted from this one.
+    if (metrics.key() != metricsKey) {
+      metricsKey = metrics.key();
+      layout.reset();
+      relayout();
+    }
+    // Changed text is always laid out again before it is drawn, so only the metrics can differ.
+    if (cell.leadKey != metricsKey) fit(cell, text, start, end);
+    layout.draw(metrics, sink.set(canvas, paint, y), text, start, end, cell.lead, x);
+  }
+
+  private void fit(CellSpan cell, CharSequence text, int start, int end) {
+    int oldWidth = layout.width();
+    cell.lead = layout.fit(metrics, text, start, end);
+    cell.leadKey = metricsKey;
+    if (layout.width() != oldWidth) relayout();
+  }
+
+  /**
+   * Lays every attached view out again after the current pass. Cells widen the column from within
+   * a layout, where requesting another would only be deferred with a warning.
+   */
+  private void relayout() {
+    if (relayoutPending) return;
+    relayoutPending = true;
+    handler.post(relayoutViews);
+  }
+
+  private static final class CellSpan extends ReplacementSpan {
+    private final TableColumn column;
+    /** Width before the alignment point, as last measured with the metrics of {@code leadKey}. */
+    float lead;
+    Object leadKey;
+
+    CellSpan(TableColumn column) {
+      this.column = column;
+    }
+
+    @Override
+    public int getSize(Paint paint, CharSequence text, int start, int end,
+        Paint.FontMetricsInt fm) {
+      SpanMetricsListener listener = SpanMetrics.listener;
+      if (listener != null) listener.onGetSize(this);
+      if (fm != null) paint.getFontMetricsInt(fm);
+      return column.measure(this, paint, text, start, end);
+    }
+
+    @Override
+    public void draw(Canvas canvas, CharSequence text, int start, int end, float x, int top,
+        int y, int bottom, Paint paint) {
+      SpanMetricsListener listener = SpanMetrics.listener;
+      if (listener != null) listener.onDraw(this);
+      column.draw(this, canvas, text, start, end, x, y, paint);
+    }
+  }
+}
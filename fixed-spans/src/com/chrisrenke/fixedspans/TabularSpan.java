@@ -20,78 +20,75 @@ import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.text.style.ReplacementSpan;
 
+import static com.chrisrenke.fixedspans.WidthClassTable.DELIMITERS;
+import static com.chrisrenke.fixedspans.WidthClassTable.DIGITS;
+
 /**
  * Class to format spans of currencies with all numerals being the same width and all delimiters
  * being the same width (distinct from the numeral width). Other characters are their normal width.
+ * Any number of further width classes, such as currency signs, can be given with a
+ * {@link WidthClassTable}.
  */
 public class TabularSpan extends ReplacementSpan {
-  private static final String DEFAULT_DELIMITER_CHARACTERS = ",.";
-  private static final String DEFAULT_NUMERAL_CHARACTERS = "0123456789";
+  static final WidthClassTable DEFAULT_WIDTH_CLASSES =
+      new WidthClassTable.Builder().addClass(DELIMITERS).addClass(DIGITS).build();
 
-  private final String delimiters;
-  private final String numerals;
+  private final TabularLayout layout;
+  private final PaintGlyphMetrics metrics = new PaintGlyphMetrics();
+  private final CanvasGlyphSink sink = new CanvasGlyphSink();
+  private final LineMeasurer measurer = new LineMeasurer() {
+    @Override LineLayout newLayout() {
+      return new TabularLayout(layout.widthClasses());
+    }
+  };
+  private AtlasGlyphSink atlasSink;
 
   public TabularSpan() {
-    this.delimiters = DEFAULT_DELIMITER_CHARACTERS;
-    this.numerals = DEFAULT_NUMERAL_CHARACTERS;
+    this(DEFAULT_WIDTH_CLASSES);
   }
 
   public TabularSpan(String delimiters, String numerals) {
-    this.delimiters = delimiters;
-    this.numerals = numerals;
+    this(new WidthClassTable.Builder().addClass(delimiters).addClass(numerals).build());
+  }
+
+  public TabularSpan(WidthClassTable widthClasses) {
+    this.layout = new TabularLayout(widthClasses);
+  }
+
+  WidthClassTable widthClasses() {
+    return layout.widthClasses();
   }
 
   @Override
   public int getSize(Paint paint, CharSequence text, int start, int end, Paint.FontMetricsInt fm) {
+    SpanMetricsListener listener = SpanMetrics.listener;
+    if (listener != null) listener.onGetSize(this);
     if (fm != null) paint.getFontMetricsInt(fm);
+    return measurer.measure(paint, text, start, end);
+  }
 
-    CharSequence actualText = text.subSequence(start, end);
-    float numberWidth = getMaxCharacterWidth(paint, numerals);
-    float delimiterWidth = getMaxCharacterWidth(paint, delimiters);
-    float totalWidth = 0;
-
-    for (int i = 0; i < actualText.length(); i++) {
-      CharSequence character = actualText.subSequence(i, i + 1);
-      if (delimiters.contains(character)) {
-        totalWidth += delimiterWidth;
-      } else if (numerals.contains(character)) {
-        totalWidth += numberWidth;
-      } else {
-        totalWidth += paint.measureText(character, 0, 1);
-      }
-    }
-    return (int) Math.ceil(totalWidth);
+  /**
+   * Draws characters as bitmaps from an atlas rasterized once per paint configuration, rather
+   * than through the text pipeline, for text redrawn every frame such as clocks and tickers.
+   * The atlas holds the characters this span has drawn, so it suits text from a small set of
+   * characters. Glyphs snap to whole pixels. Text with a shadow, underline or strike-through, or
+   * drawn with a paint not aligned left, is still drawn as text.
+   */
+  public void setAtlasEnabled(boolean enabled) {
+    atlasSink = enabled ? new AtlasGlyphSink() : null;
   }
 
   @Override
   public void draw(Canvas canvas, CharSequence text, int start, int end, float x, int top, int y,
       int bottom, Paint paint) {
-    CharSequence actualText = text.subSequence(start, end);
-    float numberWidth = getMaxCharacterWidth(paint, numerals);
-    float delimiterWidth = getMaxCharacterWidth(paint, delimiters);
-
-    for (int i = 0; i < actualText.length(); i++) {
-      CharSequence character = actualText.subSequence(i, i + 1);
-      float charWidth = paint.measureText(actualText, i, i + 1);
-      float monoWidth;
-      if (delimiters.contains(character)) {
-        monoWidth = delimiterWidth;
-      } else if (numerals.contains(character)) {
-        monoWidth = numberWidth;
-      } else {
-        monoWidth = charWidth;
-      }
-      float halfFreeSpace = (monoWidth - charWidth) / 2f;
-      canvas.drawText(actualText, i, i + 1, x + halfFreeSpace, y, paint);
-      x += monoWidth;
-    }
-  }
-
-  private static float getMaxCharacterWidth(Paint paint, CharSequence characters) {
-    float maxWidth = 0;
-    for (int i = 0; i < characters.length(); i++) {
-      maxWidth = Math.max(paint.measureText(characters, i, i + 1), maxWidth);
+    SpanMetricsListener listener = SpanMetrics.listener;
+    if (listener != null) listener.onDraw(this);
+    metrics.set(paint);
+    if (atlasSink != null && atlasSink.set(canvas, paint, y, metrics.key(), text, start, end)) {
+      layout.draw(metrics, atlasSink, text, start, end, x);
+      atlasSink.release();
+    } else {
+      layout.draw(metrics, sink.set(canvas, paint, y), text, start, end, x);
     }
-    return maxWidth;
   }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.text.TextPaint;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * Shows a single tabular value that changes often, such as a price or a counter. Because tabular
+ * cells keep their positions, a new value that keeps the width only invalidates the cells that
+ * changed; the view is laid out again only when the width changes. Hardware accelerated views
+ * ignore dirty rectangles from Lollipop on and redraw whole, so there the view is simply
+ * invalidated.
+ */
+public class TabularValueView extends View {
+  private final TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+  private final Paint.FontMetricsInt fontMetrics = new Paint.FontMetricsInt();
+  private final PaintGlyphMetrics metrics = new PaintGlyphMetrics();
+  private final CanvasGlyphSink sink = new CanvasGlyphSink();
+
+  private TabularCells cells =
+      new TabularCells(new TabularLayout(TabularSpan.DEFAULT_WIDTH_CLASSES));
+  private CharSequence value = "";
+  /** Room for glyphs painting outside their cells, e.g. through antialiasing or italics. */
+  private int overhang;
+
+  public TabularValueView(Context context) {
+    this(context, null);
+  }
+
+  public TabularValueView(Context context, AttributeSet attrs) {
+    this(context, attrs, 0);
+  }
+
+  public TabularValueView(Context context, AttributeSet attrs, int defStyle) {
+    super(context, attrs, defStyle);
+    paint.setTextSize(14 * context.getResources().getDisplayMetrics().scaledDensity);
+    paintChanged();
+  }
+
+  public CharSequence getValue() {
+    return value;
+  }
+
+  public void setValue(CharSequence value) {
+    this.value = value != null ? value : "";
+    int oldWidth = cells.width();
+    int runCount = cells.update(metrics.set(paint), this.value);
+    if (cells.width() != oldWidth) {
+      requestLayout();
+      invalidate();
+      return;
+    }
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && isHardwareAccelerated()) {
+      invalidate();
+      return;
+    }
+    int left = getPaddingLeft();
+    int top = getPaddingTop();
+    int bottom = top + fontMetrics.bottom - fontMetrics.top;
+    for (int run = 0; run < runCount; run++) {
+      invalidate(left + (int) Math.floor(cells.runLeft(run)) - overhang, top,
+          left + (int) Math.ceil(cells.runRight(run)) + overhang, bottom);
+    }
+  }
+
+  public void setWidthClasses(WidthClassTable widthClasses) {
+    cells = new TabularCells(new TabularLayout(widthClasses));
+    paintChanged();
+  }
+
+  public TextPaint getPaint() {
+    return paint;
+  }
+
+  /** Sets the text size in pixels. */
+  public void setTextSize(float size) {
+    paint.setTextSize(size);
+    paintChanged();
+  }
+
+  public void setTypeface(Typeface typeface) {
+    paint.setTypeface(typeface);
+    paintChanged();
+  }
+
+  public void setTextColor(int color) {
+    paint.setColor(color);
+    invalidate();
+  }
+
+  @Override protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+    int width = cells.width() + getPaddingLeft() + getPaddingRight();
+    int height = fontMetrics.bottom - fontMetrics.top + getPaddingTop() + getPaddingBottom();
+    setMeasuredDimension(resolveSize(width, widthMeasureSpec),
+        resolveSize(height, heightMeasureSpec));
+  }
+
+  @Override protected void onDraw(Canvas canvas) {
+    cells.layout().draw(metrics.set(paint),
+        sink.set(canvas, paint, getPaddingTop() - fontMetrics.top), value, 0, value.length(),
+        getPaddingLeft());
+  }
+
+  private void paintChanged() {
+    paint.getFontMetricsInt(fontMetrics);
+    overhang = (int) Math.ceil(paint.getTextSize() / 8);
+    cells.update(metrics.set(paint), value);
+    requestLayout();
+    invalidate();
+  }
+}
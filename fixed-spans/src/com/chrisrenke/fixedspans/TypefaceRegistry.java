@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Process-wide registry of typefaces loaded from assets. Each asset is parsed once and the same
+ * {@link Typeface} instance is handed out from then on, which also keeps {@link GlyphMetricsCache}
+ * hitting the entry measured for it instead of starting over with every fresh instance.
+ */
+public final class TypefaceRegistry {
+  private static final Map<String, Typeface> TYPEFACES = new HashMap<String, Typeface>();
+  private static final Map<Typeface, String> PATHS = new HashMap<Typeface, String>();
+
+  private TypefaceRegistry() {
+  }
+
+  /**
+   * Returns the typeface at {@code assetPath}, loading it on first use. The font is parsed without
+   * holding the registry's lock, so a preload does not hold up lookups of other typefaces. Should
+   * two threads load the same asset at once, both get the instance registered first.
+   */
+  public static Typeface get(Context context, String assetPath) {
+    synchronized (TypefaceRegistry.class) {
+      Typeface typeface = TYPEFACES.get(assetPath);
+      if (typeface != null) return typeface;
+    }
+    Typeface loaded =
+        Typeface.createFromAsset(context.getApplicationContext().getAssets(), assetPath);
+    synchronized (TypefaceRegistry.class) {
+      Typeface typeface = TYPEFACES.get(assetPath);
+      if (typeface != null) return typeface;
+      TYPEFACES.put(assetPath, loaded);
+      PATHS.put(loaded, assetPath);
+      return loaded;
+    }
+  }
+
+  /** Returns the asset path {@code typeface} was loaded from, or null if it was not loaded here. */
+  static synchronized String pathOf(Typeface typeface) {
+    return PATHS.get(typeface);
+  }
+
+  /**
+   * Loads the typefaces at {@code assetPaths} on {@code executor}, e.g. at application start, so
+   * that the first {@link #get} does not parse on the main thread.
+   */
+  public static void preload(Context context, Executor executor, final String... assetPaths) {
+    final Context appContext = context.getApplicationContext();
+    executor.execute(new Runnable() {
+      @Override public void run() {
+        for (String assetPath : assetPaths) {
+          get(appContext, assetPath);
+        }
+      }
+    });
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowLegacyCanvas;
+
+/** Canvas shadow that counts text draw calls and otherwise draws nothing. */
+@Implements(Canvas.class)
+public class CountingShadowCanvas extends ShadowLegacyCanvas {
+  static int drawTextCalls;
+  static int drawPosTextCalls;
+
+  static void resetCounts() {
+    drawTextCalls = 0;
+    drawPosTextCalls = 0;
+  }
+
+  @Implementation public void drawText(String text, float x, float y, Paint paint) {
+    drawTextCalls++;
+  }
+
+  @Implementation
+  public void drawText(String text, int start, int end, float x, float y, Paint paint) {
+    drawTextCalls++;
+  }
+
+  @Implementation
+  public void drawText(CharSequence text, int start, int end, float x, float y, Paint paint) {
+    drawTextCalls++;
+  }
+
+  @Implementation
+  public void drawText(char[] text, int index, int count, float x, float y, Paint paint) {
+    drawTextCalls++;
+  }
+
+  @Implementation
+  public void drawPosText(char[] text, int index, int count, float[] pos, Paint paint) {
+    drawPosTextCalls++;
+  }
+
+  @Implementation public void drawPosText(String text, float[] pos, Paint paint) {
+    drawPosTextCalls++;
+  }
+}
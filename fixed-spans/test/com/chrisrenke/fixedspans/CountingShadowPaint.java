@@ -0,0 +1,169 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.graphics.Paint;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowPaint;
+
+/**
+ * Paint shadow with a fixed font, which counts every call that measures text. Characters are
+ * 8 wide, apart from narrow punctuation and i, l and the space at 4 and M and W at 14. Font
+ * metrics are fixed as well.
+ */
+@Implements(Paint.class)
+public class CountingShadowPaint extends ShadowPaint {
+  static int measureTextCalls;
+  static int textWidthsCalls;
+
+  static void resetCounts() {
+    measureTextCalls = 0;
+    textWidthsCalls = 0;
+  }
+
+  static float advance(char c) {
+    switch (c) {
+      case 'M':
+      case 'W':
+        return 14;
+      case ' ':
+      case '.':
+      case ',':
+      case 'i':
+      case 'l':
+        return 4;
+      default:
+        return 8;
+    }
+  }
+
+  static float width(CharSequence text, int start, int end) {
+    float width = 0;
+    for (int i = start; i < end; i++) {
+      width += advance(text.charAt(i));
+    }
+    return width;
+  }
+
+  @Implementation public float measureText(String text) {
+    measureTextCalls++;
+    return width(text, 0, text.length());
+  }
+
+  @Implementation public float measureText(String text, int start, int end) {
+    measureTextCalls++;
+    return width(text, start, end);
+  }
+
+  @Implementation public float measureText(CharSequence text, int start, int end) {
+    measureTextCalls++;
+    return width(text, start, end);
+  }
+
+  @Implementation public float measureText(char[] text, int index, int count) {
+    measureTextCalls++;
+    return width(new String(text, index, count), 0, count);
+  }
+
+  @Implementation public int getTextWidths(CharSequence text, int start, int end, float[] widths) {
+    textWidthsCalls++;
+    for (int i = start; i < end; i++) {
+      widths[i - start] = advance(text.charAt(i));
+    }
+    return end - start;
+  }
+
+  @Implementation public int getTextWidths(String text, int start, int end, float[] widths) {
+    return getTextWidths((CharSequence) text, start, end, widths);
+  }
+
+  // The platform's own line breaking measures through these; they are not counted.
+
+  @Implementation public float getTextRunAdvances(char[] chars, int index, int count,
+      int contextIndex, int contextCount, int flags, float[] advances, int advancesIndex) {
+    return runAdvances(new String(chars, index, count), 0, count, advances, advancesIndex);
+  }
+
+  @Implementation public float getTextRunAdvances(char[] chars, int index, int count,
+      int contextIndex, int contextCount, int flags, float[] advances, int advancesIndex,
+      int reserved) {
+    return runAdvances(new String(chars, index, count), 0, count, advances, advancesIndex);
+  }
+
+  @Implementation public float getTextRunAdvances(CharSequence text, int start, int end,
+      int contextStart, int contextEnd, int flags, float[] advances, int advancesIndex) {
+    return runAdvances(text, start, end, advances, advancesIndex);
+  }
+
+  @Implementation public float getTextRunAdvances(CharSequence text, int start, int end,
+      int contextStart, int contextEnd, int flags, float[] advances, int advancesIndex,
+      int reserved) {
+    return runAdvances(text, start, end, advances, advancesIndex);
+  }
+
+  @Implementation public float getTextRunAdvances(String text, int start, int end,
+      int contextStart, int contextEnd, int flags, float[] advances, int advancesIndex) {
+    return runAdvances(text, start, end, advances, advancesIndex);
+  }
+
+  @Implementation public float getTextRunAdvances(String text, int start, int end,
+      int contextStart, int contextEnd, int flags, float[] advances, int advancesIndex,
+      int reserved) {
+    return runAdvances(text, start, end, advances, advancesIndex);
+  }
+
+  @Implementation public int getFontMetricsInt(Paint.FontMetricsInt fm) {
+    if (fm != null) {
+      fm.top = -14;
+      fm.ascent = -12;
+      fm.descent = 4;
+      fm.bottom = 5;
+      fm.leading = 0;
+    }
+    return 16;
+  }
+
+  @Implementation public float getFontMetrics(Paint.FontMetrics fm) {
+    if (fm != null) {
+      fm.top = -14;
+      fm.ascent = -12;
+      fm.descent = 4;
+      fm.bottom = 5;
+      fm.leading = 0;
+    }
+    return 16;
+  }
+
+  @Implementation public float ascent() {
+    return -12;
+  }
+
+  @Implementation public float descent() {
+    return 4;
+  }
+
+  private static float runAdvances(CharSequence text, int start, int end, float[] advances,
+      int advancesIndex) {
+    if (advances != null) {
+      for (int i = start; i < end; i++) {
+        advances[advancesIndex + i - start] = advance(text.charAt(i));
+      }
+    }
+    return width(text, start, end);
+  }
+}
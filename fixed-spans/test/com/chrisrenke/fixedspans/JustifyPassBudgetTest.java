@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.text.Editable;
+import android.text.Spanned;
+import android.util.TypedValue;
+import android.view.View;
+import android.widget.TextView;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static com.chrisrenke.fixedspans.JustifySpan.Mode.WHITESPACE_ONLY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 23, manifest = Config.NONE,
+    shadows = { CountingShadowPaint.class, CountingShadowCanvas.class })
+public class JustifyPassBudgetTest extends ShadowBudgetTest {
+  private static final String TEXT = "The quick brown fox jumps over the lazy dog and keeps on "
+      + "running through the long grass of the field until the night finally falls.";
+  private static final int WIDTH = 200;
+
+  private TextView view;
+
+  @Before public void setUpView() {
+    view = new TextView(RuntimeEnvironment.getApplication());
+    view.setText(TEXT);
+  }
+
+  @Test public void passMeasuresNothingAndMakesOneSpanPerJustifiedLine() {
+    justify(WIDTH, false);
+
+    Spanned justified = (Spanned) view.getText();
+    int lines = lineCount(justified);
+    assertTrue(lines > 2);
+    // The last line is left as it is.
+    assertEquals(lines - 1, spans(justified).length);
+    assertEquals(0, CountingShadowPaint.measureTextCalls);
+    assertEquals(0, CountingShadowPaint.textWidthsCalls);
+    assertEquals(1, recorder.justifyPassCount());
+  }
+
+  @Test public void firstDrawMeasuresOncePerLineAndRedrawNothing() {
+    justify(WIDTH, false);
+    Spanned justified = (Spanned) view.getText();
+    JustifySpan[] spans = spans(justified);
+
+    drawAll(justified, spans);
+    assertEquals(spans.length, CountingShadowPaint.textWidthsCalls);
+    assertEquals(0, CountingShadowPaint.measureTextCalls);
+
+    resetCounts();
+    drawAll(justified, spans);
+    assertEquals(0, CountingShadowPaint.textWidthsCalls);
+    assertEquals(0, CountingShadowPaint.measureTextCalls);
+  }
+
+  @Test public void unchangedViewIsNotJustifiedAgain() {
+    justify(WIDTH, false);
+    justify(WIDTH, false);
+    assertEquals(1, recorder.justifyPassCount());
+  }
+
+  @Test public void textSizeChangeRunsAPass() {
+    justify(WIDTH, false);
+    view.setTextSize(TypedValue.COMPLEX_UNIT_PX, view.getTextSize() * 2);
+    justify(WIDTH, false);
+    assertEquals(2, recorder.justifyPassCount());
+  }
+
+  @Test public void returningToAWidthRunsNoPass() {
+    justify(WIDTH, false);
+    Set<JustifySpan> first = identitySet(spans((Spanned) view.getText()));
+    justify(WIDTH - 40, false);
+    justify(WIDTH, false);
+
+    assertEquals(2, recorder.justifyPassCount());
+    assertEquals(first, identitySet(spans((Spanned) view.getText())));
+  }
+
+  @Test public void passKeepsTheSpansOfUnchangedLines() {
+    justify(WIDTH, false);
+    Set<JustifySpan> before = identitySet(spans((Spanned) view.getText()));
+    justify(WIDTH, true);
+    Set<JustifySpan> after = identitySet(spans((Spanned) view.getText()));
+
+    // Only the last line, justified now, needs a new span.
+    assertEquals(before.size() + 1, after.size());
+    after.removeAll(before);
+    assertEquals(1, after.size());
+  }
+
+  @Test public void inPlaceEditIsRejustifiedRatherThanLaidOutAgain() {
+    view.setText(TEXT, TextView.BufferType.EDITABLE);
+    justify(WIDTH, false);
+    Editable text = (Editable) view.getText();
+    int edit = text.toString().indexOf("lazy");
+    text.insert(edit, "very ");
+    JustifySpan.doJustify(view, false, -1, WHITESPACE_ONLY, new JustifyMemo(), edit, edit + 5);
+
+    // A full pass would have set a new text with a new marker.
+    assertSame(text, view.getText());
+    assertTrue(JustifySpan.findMarker(text).edited);
+    assertEquals(2, recorder.justifyPassCount());
+  }
+
+  /** Lays the view out at {@code width}, then runs {@link JustifySpan#justify} on it. */
+  private void justify(int width, boolean justifyLastLine) {
+    view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+        View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+    view.layout(0, 0, width, view.getMeasuredHeight());
+    resetCounts();
+    JustifySpan.justify(view, justifyLastLine);
+    view.getViewTreeObserver().dispatchOnGlobalLayout();
+  }
+
+  private void drawAll(Spanned text, JustifySpan[] spans) {
+    for (JustifySpan span : spans) {
+      span.draw(canvas, text, text.getSpanStart(span), text.getSpanEnd(span), 0, 0, 12, 16, paint);
+    }
+  }
+
+  private static JustifySpan[] spans(Spanned text) {
+    return text.getSpans(0, text.length(), JustifySpan.class);
+  }
+
+  private static int lineCount(CharSequence text) {
+    int lines = 1;
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) == '\n') lines++;
+    }
+    return lines;
+  }
+
+  private static Set<JustifySpan> identitySet(JustifySpan[] spans) {
+    Set<JustifySpan> set = Collections.newSetFromMap(new IdentityHashMap<JustifySpan, Boolean>());
+    set.addAll(Arrays.asList(spans));
+    return set;
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.app.Activity;
+import android.text.Spanned;
+import android.view.ViewGroup;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/** Changes between two frames of a {@link JustifyingTextView} are justified in a single pass. */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 23, manifest = Config.NONE, shadows = CountingShadowPaint.class)
+public class JustifyingTextViewTest {
+  private static final String TEXT = "The quick brown fox jumps over the lazy dog and keeps on "
+      + "running through the long grass of the field until the night finally falls.";
+  private static final int WIDTH = 200;
+
+  private JustifyingTextView view;
+
+  @Before public void setUp() {
+    Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+    view = new JustifyingTextView(activity);
+    activity.setContentView(view,
+        new ViewGroup.LayoutParams(WIDTH, ViewGroup.LayoutParams.WRAP_CONTENT));
+    view.setText(TEXT);
+    nextFrame();
+  }
+
+  @Test public void textAndLayoutChangesInOneFrameRunOnePass() {
+    int passes = view.getJustifyPassCount();
+    view.setText(TEXT + " Once.");
+    view.requestLayout();
+    view.setText(TEXT + " Twice.");
+    view.requestLayout();
+    view.setText(TEXT + " Thrice.");
+    assertEquals(passes, view.getJustifyPassCount());
+
+    nextFrame();
+    assertEquals(passes + 1, view.getJustifyPassCount());
+    // The one pass justified the last text set.
+    assertNotNull(JustifySpan.findMarker(view.getText()));
+    assertEquals(TEXT + " Thrice.", JustifySpan.sourceOf((Spanned) view.getText()).toString());
+  }
+
+  @Test public void framesWithoutChangesRunNoPass() {
+    int passes = view.getJustifyPassCount();
+    view.requestLayout();
+    nextFrame();
+    nextFrame();
+    assertEquals(passes, view.getJustifyPassCount());
+  }
+
+  /** Runs the main looper through the next frame's traversal. */
+  private static void nextFrame() {
+    ShadowLooper.idleMainLooper(16, TimeUnit.MILLISECONDS);
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.text.Layout;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.chrisrenke.fixedspans.JustifySpan.Mode.WHITESPACE_ONLY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link JustifySpan#rejustify} must leave a text just as a full pass over its edited source
+ * would, while rebuilding only the lines around the edit.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 23, manifest = Config.NONE, shadows = CountingShadowPaint.class)
+public class RejustifyTest {
+  private static final String TEXT = "The quick brown fox jumps over the lazy dog and keeps on "
+      + "running through the long grass of the field until the night finally falls.\n"
+      + "A second paragraph follows the first one and is long enough to wrap as well.";
+  private static final int WIDTH = 200;
+
+  private TextPaint paint;
+
+  @Before public void setUp() {
+    GlyphMetricsCache.clear();
+    paint = new TextPaint();
+  }
+
+  @Test public void insertionMatchesAFullPass() {
+    SpannableStringBuilder text = justify(TEXT);
+    int edit = text.toString().indexOf("lazy");
+    text.insert(edit, "very ");
+    JustifySpan.rejustify(text, edit, edit + 5, paint, WIDTH, false, -1, WHITESPACE_ONLY);
+
+    assertMatchesFullPass(text);
+  }
+
+  @Test public void deletionMatchesAFullPass() {
+    SpannableStringBuilder text = justify(TEXT);
+    int edit = text.toString().indexOf("quick ");
+    text.delete(edit, edit + 6);
+    JustifySpan.rejustify(text, edit, edit, paint, WIDTH, false, -1, WHITESPACE_ONLY);
+
+    assertMatchesFullPass(text);
+  }
+
+  @Test public void editAtTheEndMatchesAFullPass() {
+    SpannableStringBuilder text = justify(TEXT);
+    text.append(" And then some.");
+    JustifySpan.rejustify(text, text.length() - 15, text.length(), paint, WIDTH, false, -1,
+        WHITESPACE_ONLY);
+
+    assertMatchesFullPass(text);
+  }
+
+  @Test public void linesOutsideTheEditKeepTheirSpans() {
+    SpannableStringBuilder text = justify(TEXT);
+    List<JustifySpan> before = Arrays.asList(text.getSpans(0, text.length(), JustifySpan.class));
+    int edit = text.toString().indexOf("dog");
+    // Same advances as the word replaced, so no break moves.
+    text.replace(edit, edit + 3, "cat");
+    JustifySpan.rejustify(text, edit, edit + 3, paint, WIDTH, false, -1, WHITESPACE_ONLY);
+
+    assertMatchesFullPass(text);
+    // Only the edited line and the one before it are rebuilt.
+    String chars = text.toString();
+    int rebuiltStart = chars.lastIndexOf('\n', chars.lastIndexOf('\n', edit) - 1) + 1;
+    int rebuiltEnd = chars.indexOf('\n', edit);
+    int rebuilt = 0;
+    for (JustifySpan span : text.getSpans(0, text.length(), JustifySpan.class)) {
+      int start = text.getSpanStart(span);
+      if (start >= rebuiltStart && start < rebuiltEnd) {
+        assertFalse(before.contains(span));
+        rebuilt++;
+      } else {
+        assertTrue(before.contains(span));
+      }
+    }
+    assertEquals(2, rebuilt);
+  }
+
+  @Test public void editedTextIsNoLongerTakenForAFullPassOutput() {
+    SpannableStringBuilder text = justify(TEXT);
+    assertTrue(JustifySpan.isJustified(text, paint, WIDTH, false, -1, WHITESPACE_ONLY));
+    int edit = text.toString().indexOf("lazy");
+    text.insert(edit, "very ");
+    JustifySpan.rejustify(text, edit, edit + 5, paint, WIDTH, false, -1, WHITESPACE_ONLY);
+
+    assertFalse(JustifySpan.isJustified(text, paint, WIDTH, false, -1, WHITESPACE_ONLY));
+  }
+
+  @Test public void editingACopyLeavesTheOriginalJustified() {
+    SpannableStringBuilder text = justify(TEXT);
+    // Copies share their spans, as the text of a view does with a remembered result.
+    SpannableStringBuilder copy = new SpannableStringBuilder(text);
+    int edit = copy.toString().indexOf("lazy");
+    copy.insert(edit, "very ");
+    JustifySpan.rejustify(copy, edit, edit + 5, paint, WIDTH, false, -1, WHITESPACE_ONLY);
+
+    assertTrue(JustifySpan.isJustified(text, paint, WIDTH, false, -1, WHITESPACE_ONLY));
+  }
+
+  private SpannableStringBuilder justify(CharSequence source) {
+    Layout layout =
+        new StaticLayout(source, paint, WIDTH, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, false);
+    assertTrue(layout.getLineCount() > 4);
+    return JustifySpan.justifyLines(layout, WIDTH, false, -1, WHITESPACE_ONLY, null, null);
+  }
+
+  /** Asserts that {@code text} has the chars and span ranges of a full pass over its source. */
+  private void assertMatchesFullPass(SpannableStringBuilder text) {
+    SpannableStringBuilder expected = justify(JustifySpan.sourceOf(text).toString());
+    assertEquals(expected.toString(), text.toString());
+    assertEquals(spanRanges(expected), spanRanges(text));
+  }
+
+  private static String spanRanges(Spanned text) {
+    JustifySpan[] spans = text.getSpans(0, text.length(), JustifySpan.class);
+    int[] ranges = new int[spans.length];
+    for (int i = 0; i < spans.length; i++) {
+      ranges[i] = text.getSpanStart(spans[i]) << 16 | text.getSpanEnd(spans[i]);
+    }
+    Arrays.sort(ranges);
+    return Arrays.toString(ranges);
+  }
+
+}
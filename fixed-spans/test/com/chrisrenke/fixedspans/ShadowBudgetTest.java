@@ -0,0 +1,50 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import android.graphics.Canvas;
+import android.text.TextPaint;
+import org.junit.After;
+import org.junit.Before;
+
+/**
+ * Base for the call budget tests that need the platform. Every test starts with an empty glyph
+ * cache, fresh counts and a {@link SpanMetricsRecorder} installed, and draws with the fixed font of
+ * {@link CountingShadowPaint}. Budgets of the layouts themselves are pinned in fixed-spans-core.
+ */
+public abstract class ShadowBudgetTest {
+  final SpanMetricsRecorder recorder = new SpanMetricsRecorder();
+  TextPaint paint;
+  Canvas canvas;
+
+  @Before public void setUpBudget() {
+    GlyphMetricsCache.clear();
+    SpanMetrics.setListener(recorder);
+    paint = new TextPaint();
+    canvas = new Canvas();
+    resetCounts();
+  }
+
+  @After public void tearDownBudget() {
+    SpanMetrics.setListener(null);
+  }
+
+  static void resetCounts() {
+    CountingShadowPaint.resetCounts();
+    CountingShadowCanvas.resetCounts();
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014 Chris Renke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.chrisrenke.fixedspans;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+
+/** Spans measure through the process-wide {@link GlyphMetricsCache}, once per glyph and font. */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 23, manifest = Config.NONE,
+    shadows = { CountingShadowPaint.class, CountingShadowCanvas.class })
+public class SpanCacheBudgetTest extends ShadowBudgetTest {
+  private static final String DIGITS = "1234567812345678";
+  private static final String AMOUNT = "$1,234.56";
+
+  @Test public void monospaceSpansShareTheReferenceWidths() {
+    MonospaceSpan span = new MonospaceSpan();
+    span.getSize(paint, DIGITS, 0, DIGITS.length(), null);
+    assertEquals(2, CountingShadowPaint.measureTextCalls); // M and W.
+
+    span.getSize(paint, DIGITS, 0, DIGITS.length(), null);
+    new MonospaceSpan().getSize(paint, DIGITS, 0, DIGITS.length(), null);
+    assertEquals(2, CountingShadowPaint.measureTextCalls);
+    assertEquals(3, recorder.getSizeCount(MonospaceSpan.class));
+  }
+
+  @Test public void monospaceRedrawMeasuresNothingAndDrawsOneRun() {
+    MonospaceSpan span = new MonospaceSpan();
+    span.draw(canvas, DIGITS, 0, DIGITS.length(), 0, 0, 12, 16, paint);
+    resetCounts();
+
+    span.draw(canvas, DIGITS, 0, DIGITS.length(), 0, 0, 12, 16, paint);
+    assertEquals(0, CountingShadowPaint.measureTextCalls);
+    assertEquals(1, CountingShadowCanvas.drawPosTextCalls);
+    assertEquals(0, CountingShadowCanvas.drawTextCalls);
+  }
+
+  @Test public void tabularSpansMeasureOnlyNewCharacters() {
+    TabularSpan span = new TabularSpan();
+    span.getSize(paint, AMOUNT, 0, AMOUNT.length(), null);
+    // Both delimiters, all ten digits and the dollar sign, which is in no class.
+    assertEquals(13, CountingShadowPaint.measureTextCalls);
+
+    span.draw(canvas, AMOUNT, 0, AMOUNT.length(), 0, 0, 12, 16, paint);
+    new TabularSpan().getSize(paint, "-9,876.54", 0, 9, null);
+    assertEquals(14, CountingShadowPaint.measureTextCalls); // Only the minus is new.
+  }
+
+  @Test public void justifyRedrawMeasuresNothing() {
+    String line = "hello world foo bar";
+    JustifySpan span = new JustifySpan(300, 2f);
+    span.draw(canvas, line, 0, line.length(), 0, 0, 12, 16, paint);
+    assertEquals(1, CountingShadowPaint.textWidthsCalls);
+    resetCounts();
+
+    span.draw(canvas, line, 0, line.length(), 0, 0, 12, 16, paint);
+    assertEquals(0, CountingShadowPaint.textWidthsCalls);
+    assertEquals(0, CountingShadowPaint.measureTextCalls);
+  }
+}